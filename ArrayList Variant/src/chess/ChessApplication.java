@@ -1,9 +1,24 @@
 package chess;
 
+import chess.cli.FenValidator;
+import chess.cli.TokenizerBenchmark;
+import chess.core.FenParser;
+import chess.core.Move;
+import chess.core.MoveGenerator;
+import chess.core.Pieces;
+import chess.core.Position;
+import chess.history.HistoryFile;
+import chess.history.HistoryStore;
+import chess.history.HistoryView;
+import chess.history.MoveHistory;
+import chess.history.PackedHistory;
+import chess.history.VariationTree;
 import chess.model.Piece;
 import chess.model.PieceType;
 import chess.model.Square;
+import chess.utils.BackendBenchmark;
 import chess.utils.Benchmark;
+import chess.utils.PerftRunner;
 
 import javax.swing.*;
 import java.awt.*;
@@ -11,10 +26,10 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.util.*;
-import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import static chess.utils.Benchmark.getSpace;
 import static chess.utils.Benchmark.getTime;
@@ -25,54 +40,36 @@ public class ChessApplication extends JFrame {
     private JButton importButton, exportButton;
     private JLabel turnLabel;
     private Square[][] squares = new Square[8][8];
-    private Piece selectedPiece = null;
+    private final Position position = new Position();
+    private final Position loadedPosition = new Position();
+    private final FenParser fenParser = new FenParser();
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
     private int selectedRow = -1, selectedCol = -1;
-    private boolean isWhiteTurn = true;
-    private int[] enPassantTarget = null; // [row, col] of en passant target square
-    private boolean whiteKingMoved = false;
-    private boolean blackKingMoved = false;
-    private boolean[] whiteRooksMoved = {false, false}; // queenside, kingside
-    private boolean[] blackRooksMoved = {false, false};
-    private List<String> fenHistory = new ArrayList<>();
+    private VariationTree history = newHistory();
+    // A history file being browsed in place; while it is open it is the history shown
+    private HistoryFile archive;
+    // The export, import or archive copy running in the background, if any, one waiting for it to stop,
+    // and whether a task is reading the history
+    private HistoryTask<?> historyTask;
+    private HistoryTask<?> queuedTask;
+    private boolean historyLocked;
     private int currentHistoryIndex = -1;
     private JButton backButton, forwardButton;
     private JSpinner historySpinner;
     private JButton jumpButton;
+    private JButton variationButton;
     private JButton exportHistoryButton;
     private JButton importHistoryButton;
+    private JProgressBar historyProgress;
+    private JButton cancelHistoryButton;
 
-    private static final Map<Character, PieceType> fenToPiece = new HashMap<>();
+    // One shared Piece per type; the board panels only ever display these
+    private static final Piece[] PIECES = new Piece[PieceType.values().length];
 
     static {
-        fenToPiece.put('P', PieceType.PAWN_WHITE);
-        fenToPiece.put('N', PieceType.KNIGHT_WHITE);
-        fenToPiece.put('B', PieceType.BISHOP_WHITE);
-        fenToPiece.put('R', PieceType.ROOK_WHITE);
-        fenToPiece.put('Q', PieceType.QUEEN_WHITE);
-        fenToPiece.put('K', PieceType.KING_WHITE);
-        fenToPiece.put('p', PieceType.PAWN_BLACK);
-        fenToPiece.put('n', PieceType.KNIGHT_BLACK);
-        fenToPiece.put('b', PieceType.BISHOP_BLACK);
-        fenToPiece.put('r', PieceType.ROOK_BLACK);
-        fenToPiece.put('q', PieceType.QUEEN_BLACK);
-        fenToPiece.put('k', PieceType.KING_BLACK);
-    }
-
-    private static final Map<PieceType, Character> pieceToFen = new HashMap<>();
-
-    static {
-        pieceToFen.put(PieceType.PAWN_WHITE, 'P');
-        pieceToFen.put(PieceType.KNIGHT_WHITE, 'N');
-        pieceToFen.put(PieceType.BISHOP_WHITE, 'B');
-        pieceToFen.put(PieceType.ROOK_WHITE, 'R');
-        pieceToFen.put(PieceType.QUEEN_WHITE, 'Q');
-        pieceToFen.put(PieceType.KING_WHITE, 'K');
-        pieceToFen.put(PieceType.PAWN_BLACK, 'p');
-        pieceToFen.put(PieceType.KNIGHT_BLACK, 'n');
-        pieceToFen.put(PieceType.BISHOP_BLACK, 'b');
-        pieceToFen.put(PieceType.ROOK_BLACK, 'r');
-        pieceToFen.put(PieceType.QUEEN_BLACK, 'q');
-        pieceToFen.put(PieceType.KING_BLACK, 'k');
+        for (PieceType type : PieceType.values()) {
+            PIECES[type.ordinal()] = new Piece(type);
+        }
     }
 
     public ChessApplication() {
@@ -106,7 +103,7 @@ public class ChessApplication extends JFrame {
 
         // FEN controls
         JPanel fenPanel = new JPanel(new BorderLayout());
-        fenTextField = new JTextField("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        fenTextField = new JTextField(Position.START_FEN);
 
 
         // Navigation buttons
@@ -123,6 +120,9 @@ public class ChessApplication extends JFrame {
         historySpinner = new JSpinner(new SpinnerNumberModel(0, 0, 0, 1));
         jumpButton = new JButton("Jump to Move");
         jumpButton.addActionListener(e -> jumpToMove());
+        variationButton = new JButton("Other Move");
+        variationButton.setEnabled(false);
+        variationButton.addActionListener(e -> showNextVariation());
 
         // History buttons panel (now above turn indicator)
         JPanel historyButtonPanel = new JPanel();
@@ -132,6 +132,12 @@ public class ChessApplication extends JFrame {
         importHistoryButton.addActionListener(e -> importHistoryFromFile());
         historyButtonPanel.add(exportHistoryButton);
         historyButtonPanel.add(importHistoryButton);
+        historyProgress = new JProgressBar(0, 100);
+        cancelHistoryButton = new JButton("Cancel");
+        cancelHistoryButton.setEnabled(false);
+        cancelHistoryButton.addActionListener(e -> historyTask.stopRequested = true);
+        historyButtonPanel.add(historyProgress);
+        historyButtonPanel.add(cancelHistoryButton);
 
         // Turn indicator
         turnLabel = new JLabel("White's turn", SwingConstants.CENTER);
@@ -148,6 +154,7 @@ public class ChessApplication extends JFrame {
         fenButtonPanel.add(new JLabel("Move:"));
         fenButtonPanel.add(historySpinner);
         fenButtonPanel.add(jumpButton);
+        fenButtonPanel.add(variationButton);
 
         buttonPanel.add(fenButtonPanel, BorderLayout.NORTH);
         buttonPanel.add(historyButtonPanel, BorderLayout.CENTER);
@@ -168,15 +175,85 @@ public class ChessApplication extends JFrame {
         updateNavigationButtons();
     }
 
+    // The line shown keeps its moves in this variant's collection unless -Dchess.historyStore names
+    // another (see HistoryStore.create); -Dchess.keyframeInterval=N trades history memory against the
+    // moves replayed per jump
+    private static VariationTree newHistory() {
+        return new VariationTree(HistoryStore.create(System.getProperty("chess.historyStore", "arraylist")),
+                Integer.getInteger("chess.keyframeInterval", MoveHistory.DEFAULT_KEYFRAME_INTERVAL));
+    }
+
+    private HistoryView shownHistory() {
+        return archive != null ? archive : history;
+    }
+
+    private void showArchive(HistoryFile opened) {
+        closeArchive();
+        archive = opened;
+        history = newHistory();
+        currentHistoryIndex = archive.isLoading() ? 0 : archive.size() - 1;
+        historySpinner.setModel(new SpinnerNumberModel(
+                currentHistoryIndex, 0, Math.max(0, shownHistory().size() - 1), 1));
+        loadHistoryPosition();
+        updateNavigationButtons();
+    }
+
+    private void showHistory(VariationTree loaded) {
+        closeArchive();
+        history = loaded;
+        currentHistoryIndex = history.size() - 1;
+        historySpinner.setModel(new SpinnerNumberModel(
+                currentHistoryIndex, 0, Math.max(0, shownHistory().size() - 1), 1));
+        loadHistoryPosition();
+        updateNavigationButtons();
+    }
+
+    // Lets the spinner and Next reach the entries a plain text file's background indexing has found so far
+    private void followArchiveLoading() {
+        if (archive == null) {
+            return;
+        }
+        historySpinner.setModel(new SpinnerNumberModel(
+                currentHistoryIndex, 0, Math.max(0, archive.size() - 1), 1));
+        updateNavigationButtons();
+    }
+
+    private void closeArchive() {
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                // Only read from; nothing is lost
+            }
+            archive = null;
+        }
+    }
+
+    // Playing a move while browsing a file continues from an in-memory copy of the entries up to the
+    // one shown. The copy is made in the background with the board locked; a file still being indexed
+    // is stopped first, and the copy starts once that import has finished.
+    private void leaveArchive(int move) {
+        setHistoryLocked(true);
+        LeaveArchiveTask task = new LeaveArchiveTask(archive, currentHistoryIndex, move);
+        if (historyTask != null) {
+            historyTask.stopRequested = true;
+            queuedTask = task;
+        } else {
+            startHistoryTask(task);
+        }
+    }
+
     private void jumpToMove() {
+        if (historyLocked) {
+            return;
+        }
         long startTime, endTime;
         startTime = System.nanoTime();
 
         int index = (Integer)historySpinner.getValue();
-        if (index >= 0 && index < fenHistory.size()) {
+        if (index >= 0 && index < shownHistory().size()) {
             currentHistoryIndex = index;
-            fenTextField.setText(fenHistory.get(currentHistoryIndex));
-            initializeFEN();
+            loadHistoryPosition();
             updateNavigationButtons();
 
             endTime = System.nanoTime();
@@ -186,106 +263,324 @@ public class ChessApplication extends JFrame {
     }
 
     private void updateNavigationButtons() {
-        backButton.setEnabled(currentHistoryIndex > 0);
-        forwardButton.setEnabled(currentHistoryIndex < fenHistory.size() - 1);
+        backButton.setEnabled(!historyLocked && currentHistoryIndex > 0);
+        forwardButton.setEnabled(!historyLocked && currentHistoryIndex < shownHistory().size() - 1);
+        variationButton.setEnabled(!historyLocked && archive == null && currentHistoryIndex > 0
+                && history.variationCount(currentHistoryIndex) > 1);
     }
 
-    private void exportHistoryToFile() {
-        long startTime = 0;
-        long endTime = 0;
+    // Swaps the move that led to the position shown for the next one tried there, and shows the line
+    // that carries on from it
+    private void showNextVariation() {
+        if (historyLocked || archive != null || currentHistoryIndex <= 0) {
+            return;
+        }
+        history.nextVariation(currentHistoryIndex);
+        historySpinner.setModel(new SpinnerNumberModel(
+                currentHistoryIndex, 0, Math.max(0, shownHistory().size() - 1), 1));
+        loadHistoryPosition();
+        updateNavigationButtons();
+    }
 
+    private void exportHistoryToFile() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setSelectedFile(new File("chess_history.txt"));
-        int option = fileChooser.showSaveDialog(this);
+        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            setHistoryLocked(true);
+            startHistoryTask(new ExportTask(fileChooser.getSelectedFile().toPath(), shownHistory()));
+        }
+    }
 
-        if (option == JFileChooser.APPROVE_OPTION) {
-            try {
-                startTime = System.nanoTime();
-                Path file = fileChooser.getSelectedFile().toPath();
-                Files.write(file, fenHistory);
-                endTime = System.nanoTime();
-                JOptionPane.showMessageDialog(this, "History exported to:\n" + file.toString());
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Error exporting history:\n" + ex.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
+    private void importHistoryFromFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            startHistoryTask(new ImportTask(fileChooser.getSelectedFile().toPath()));
+        }
+    }
+
+    private void startHistoryTask(HistoryTask<?> task) {
+        historyTask = task;
+        exportHistoryButton.setEnabled(false);
+        importHistoryButton.setEnabled(false);
+        cancelHistoryButton.setEnabled(true);
+        historyProgress.setValue(0);
+        task.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                historyProgress.setValue((Integer) e.getNewValue());
             }
+        });
+        task.execute();
+    }
+
+    private void finishHistoryTask() {
+        historyTask = null;
+        exportHistoryButton.setEnabled(true);
+        importHistoryButton.setEnabled(true);
+        cancelHistoryButton.setEnabled(false);
+        historyProgress.setValue(0);
+        if (queuedTask != null) {
+            HistoryTask<?> next = queuedTask;
+            queuedTask = null;
+            startHistoryTask(next);
         }
+    }
 
-        getTime(startTime, endTime); //get time used
-        getSpace(); //get space used
+    // While an export or archive copy reads the history on its worker thread, nothing on this one may
+    // change it or step through it
+    private void setHistoryLocked(boolean locked) {
+        historyLocked = locked;
+        jumpButton.setEnabled(!locked);
+        if (locked) {
+            backButton.setEnabled(false);
+            forwardButton.setEnabled(false);
+            variationButton.setEnabled(false);
+        } else {
+            updateNavigationButtons();
+        }
     }
 
-    private void importHistoryFromFile() {
-        JFileChooser fileChooser = new JFileChooser();
-        int option = fileChooser.showOpenDialog(this);
-        long startTime = 0;
-        long endTime = 0;
+    // An export or import running on a worker thread. Cancel only asks it to stop at its next progress
+    // report, so done() still comes after the worker has let go of the history. startTime and endTime
+    // bracket the file I/O alone, never a dialog.
+    private abstract class HistoryTask<V> extends SwingWorker<Void, V> {
+        volatile boolean stopRequested;
+        protected long startTime, endTime;
 
-        if (option == JFileChooser.APPROVE_OPTION) {
+        protected boolean report(long done, long total) {
+            setProgress((int) Math.min(100, done * 100 / Math.max(1, total)));
+            return !stopRequested;
+        }
+
+        protected String failure(Exception e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            return cause.getMessage();
+        }
+    }
+
+    private class ExportTask extends HistoryTask<Void> {
+        private final Path file;
+        private final HistoryView exported;
+
+        ExportTask(Path file, HistoryView exported) {
+            this.file = file;
+            this.exported = exported;
+        }
+
+        @Override
+        protected Void doInBackground() throws IOException {
+            startTime = System.nanoTime();
+            if (file.toString().endsWith(PackedHistory.EXTENSION)) {
+                PackedHistory.write(file, exported, true, this::report);
+            } else if (file.toString().endsWith(HistoryFile.EXTENSION)) {
+                HistoryFile.write(file, exported, this::report);
+            } else {
+                HistoryFile.writeText(file, exported, this::report);
+            }
+            endTime = System.nanoTime();
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            finishHistoryTask();
+            setHistoryLocked(false);
             try {
-                startTime = System.nanoTime();
-                Path file = fileChooser.getSelectedFile().toPath();
-                List<String> importedHistory = Files.readAllLines(file);
-                if (!importedHistory.isEmpty()) {
-                    fenHistory = new LinkedList<>(importedHistory);
-                    currentHistoryIndex = fenHistory.size() - 1;
-                    historySpinner.setModel(new SpinnerNumberModel(
-                            currentHistoryIndex, 0, Math.max(0, fenHistory.size() - 1), 1));
-                    fenTextField.setText(fenHistory.get(currentHistoryIndex));
-                    initializeFEN();
-                    updateNavigationButtons();
-                    endTime = System.nanoTime();
-                    JOptionPane.showMessageDialog(this, "History imported from:\n" + file.toString());
+                get();
+                getTime(startTime, endTime); //get time used
+                getSpace(); //get space used
+                JOptionPane.showMessageDialog(ChessApplication.this, "History exported to:\n" + file);
+            } catch (InterruptedException | ExecutionException e) {
+                if (e.getCause() instanceof CancellationException) {
+                    JOptionPane.showMessageDialog(ChessApplication.this, "Export cancelled; " + file + " is unchanged");
                 } else {
-                    JOptionPane.showMessageDialog(this, "The file is empty",
+                    JOptionPane.showMessageDialog(ChessApplication.this, "Error exporting history:\n" + failure(e),
                             "Error", JOptionPane.ERROR_MESSAGE);
                 }
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Error importing history:\n" + ex.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
             }
+        }
+    }
+
+    // A packed file is read into a new history, which replaces the one shown once it is complete.
+    // Other files are browsed where they are, an entry at a time: indexed files are mapped, plain text
+    // is indexed by a background pass and shown from its first position meanwhile. The task lasts until
+    // the indexing is done; cancelling it keeps the entries found so far, or for a packed file leaves
+    // the history shown as it was.
+    private class ImportTask extends HistoryTask<Void> {
+        private final Path file;
+        private HistoryFile opened;
+        private VariationTree unpacked;
+
+        ImportTask(Path file) {
+            this.file = file;
+            addPropertyChangeListener(e -> followArchiveLoading());
+        }
+
+        @Override
+        protected Void doInBackground() throws IOException {
+            startTime = System.nanoTime();
+            if (PackedHistory.isPacked(file)) {
+                VariationTree loaded = newHistory();
+                PackedHistory.read(file, loaded, this::report);
+                endTime = System.nanoTime();
+                if (loaded.isEmpty()) {
+                    throw new IOException("The file is empty");
+                }
+                unpacked = loaded;
+                return null;
+            }
+            HistoryFile found = HistoryFile.open(file);
+            if (found.size() == 0) {
+                found.close();
+                throw new IOException("The file is empty");
+            }
+            opened = found;
+            SwingUtilities.invokeLater(() -> showArchive(found));
+            found.awaitLoaded(this::report);
+            endTime = System.nanoTime();
+            return null;
+        }
 
-            getTime(startTime, endTime); //get time used
-            getSpace(); //get space used
+        @Override
+        protected void done() {
+            finishHistoryTask();
+            // A move played from a file meanwhile has started copying that file, and wins over the import
+            boolean leaving = historyTask instanceof LeaveArchiveTask;
+            followArchiveLoading();
+            try {
+                get();
+                if (unpacked != null && !leaving) {
+                    showHistory(unpacked);
+                }
+                getTime(startTime, endTime); //get time used
+                getSpace(); //get space used
+                // Nothing to say about a file that is being left for a move played meanwhile. A packed
+                // file that got to its end is complete, whenever Cancel was pressed.
+                if (leaving) {
+                    return;
+                }
+                if (unpacked != null) {
+                    JOptionPane.showMessageDialog(ChessApplication.this,
+                            "History imported from:\n" + file + "\n" + unpacked.size() + " positions");
+                } else if (archive == opened) {
+                    JOptionPane.showMessageDialog(ChessApplication.this, (stopRequested
+                            ? "History import stopped after " + opened.size() + " positions:\n"
+                            : "History imported from:\n") + file);
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                if (e.getCause() instanceof CancellationException) {
+                    JOptionPane.showMessageDialog(ChessApplication.this, "Import cancelled");
+                } else {
+                    JOptionPane.showMessageDialog(ChessApplication.this, "Error importing history:\n" + failure(e),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
         }
     }
 
 
 
+    // Copies the file's entries up to the one shown into a new history on the worker thread; done()
+    // then closes the file and records the move played. Cancelling, or an entry that cannot be read,
+    // takes the move back and leaves the file open.
+    private class LeaveArchiveTask extends HistoryTask<Void> {
+        private final HistoryFile left;
+        private final int lastIndex;
+        private final int move;
+        private VariationTree copy;
+
+        LeaveArchiveTask(HistoryFile left, int lastIndex, int move) {
+            this.left = left;
+            this.lastIndex = lastIndex;
+            this.move = move;
+        }
+
+        @Override
+        protected Void doInBackground() {
+            startTime = System.nanoTime();
+            VariationTree tree = newHistory();
+            Position entry = new Position();
+            for (int i = 0; i <= lastIndex; i++) {
+                if ((i & 1023) == 0 && !report(i, lastIndex + 1)) {
+                    throw new CancellationException("stopped after " + i + " of " + (lastIndex + 1) + " entries");
+                }
+                left.positionAt(i, entry);
+                tree.appendPosition(entry);
+            }
+            endTime = System.nanoTime();
+            copy = tree;
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            finishHistoryTask();
+            setHistoryLocked(false);
+            try {
+                get();
+                getTime(startTime, endTime); //get time used
+                closeArchive();
+                history = copy;
+                addToMoveHistory(move);
+            } catch (InterruptedException | ExecutionException e) {
+                loadHistoryPosition();
+                if (!(e.getCause() instanceof CancellationException)) {
+                    JOptionPane.showMessageDialog(ChessApplication.this, "Error copying history:\n" + failure(e),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+    }
+
     private void navigateHistory(int direction) {
+        if (historyLocked) {
+            return;
+        }
         // Calculate new index
         int newIndex = currentHistoryIndex + direction;
 
         // Validate new index
-        if (newIndex < 0 || newIndex >= fenHistory.size()) {
+        if (newIndex < 0 || newIndex >= shownHistory().size()) {
             return;
         }
 
         // Update current index
+        int previousIndex = currentHistoryIndex;
         currentHistoryIndex = newIndex;
 
-        // Load FEN from history
-        String fen = fenHistory.get(currentHistoryIndex);
-        loadFENPosition(fen);
+        // One step makes or takes back a single move on the board and repaints only the squares it
+        // touches; the history is replayed only when there is no move to step over
+        int move = archive == null ? history.moveAt(Math.max(previousIndex, currentHistoryIndex)) : Move.NONE;
+        if (move != Move.NONE && (direction > 0 || position.undoDepth() > 0)) {
+            if (direction > 0) {
+                position.makeMove(move);
+            } else {
+                position.unmakeMove();
+            }
+            renderSquares(Move.touchedSquares(move));
+            generateFEN();
+            updateTurnIndicator();
+        } else {
+            loadHistoryPosition();
+        }
 
         // Update button states
-        backButton.setEnabled(currentHistoryIndex > 0);
-        forwardButton.setEnabled(currentHistoryIndex < fenHistory.size() - 1);
+        updateNavigationButtons();
     }
 
-    private void addToMoveHistory() {
+    private void addToMoveHistory(int move) {
         long startTime, endTime;
 
-        startTime = System.nanoTime();
-        if (currentHistoryIndex < fenHistory.size() - 1) {
-            fenHistory.subList(currentHistoryIndex + 1, fenHistory.size()).clear();
+        if (archive != null) {
+            leaveArchive(move);
+            return;
         }
-
-        String currentFEN = generateFEN();
-        fenHistory.add(currentFEN);
-        currentHistoryIndex = fenHistory.size() - 1;
+        startTime = System.nanoTime();
+        // The line shown goes on through the new move; the one it leaves stays in the tree
+        history.playMove(currentHistoryIndex, move);
+        generateFEN();
+        currentHistoryIndex++;
         historySpinner.setModel(new SpinnerNumberModel(
-                currentHistoryIndex, 0, Math.max(0, fenHistory.size() - 1), 1));
+                currentHistoryIndex, 0, Math.max(0, shownHistory().size() - 1), 1));
         updateNavigationButtons();
         endTime = System.nanoTime();
 
@@ -294,37 +589,44 @@ public class ChessApplication extends JFrame {
     }
 
 
-    private void loadFENPosition(String fen) {
+    private void loadHistoryPosition() {
         // Temporarily disable navigation while loading
         backButton.setEnabled(false);
         forwardButton.setEnabled(false);
 
-        fenTextField.setText(fen);
-        initializeFEN();
+        // Positions from the history are rebuilt from its moves and shown as they are, never added to it again
+        try {
+            shownHistory().positionAt(currentHistoryIndex, position);
+            generateFEN();
+            renderBoard();
+            updateTurnIndicator();
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
 
         // Re-enable navigation if appropriate
         backButton.setEnabled(currentHistoryIndex > 0);
-        forwardButton.setEnabled(currentHistoryIndex < fenHistory.size() - 1);
+        forwardButton.setEnabled(currentHistoryIndex < shownHistory().size() - 1);
     }
 
 
     private void updateTurnIndicator() {
+        boolean isWhiteTurn = position.isWhiteToMove();
         turnLabel.setText(isWhiteTurn ? "White's turn" : "Black's turn");
         turnLabel.setBackground(isWhiteTurn ? Color.WHITE : Color.BLACK);
         turnLabel.setForeground(isWhiteTurn ? Color.BLACK : Color.WHITE);
     }
 
     private void handleSquareClick(int row, int col) {
+        if (historyLocked) {
+            return;
+        }
         // If no piece is selected, try to select one
-        if (selectedPiece == null) {
-            Piece clickedPiece = squares[row][col].getPiece();
+        if (selectedRow == -1) {
+            int clickedPiece = position.pieceAt(row, col);
 
             // Check if the clicked piece belongs to the current player
-            if (clickedPiece != null &&
-                    ((isWhiteTurn && clickedPiece.getType().isWhite()) ||
-                            (!isWhiteTurn && clickedPiece.getType().isBlack()))) {
-
-                selectedPiece = clickedPiece;
+            if (clickedPiece != Pieces.EMPTY && Pieces.color(clickedPiece) == position.sideToMove()) {
                 selectedRow = row;
                 selectedCol = col;
                 squares[row][col].setBackground(Color.YELLOW);
@@ -332,491 +634,133 @@ public class ChessApplication extends JFrame {
         }
         // If a piece is already selected, try to move it
         else {
-            // Check if the move is valid
-            if (isValidMove(selectedRow, selectedCol, row, col)) {
-                Piece movedPiece = squares[selectedRow][selectedCol].getPiece();
-
-                // Handle castling
-                if (movedPiece.getType() == PieceType.KING_WHITE ||
-                        movedPiece.getType() == PieceType.KING_BLACK) {
-
-                    // Mark king as moved
-                    if (movedPiece.getType().isWhite()) {
-                        whiteKingMoved = true;
-                    } else {
-                        blackKingMoved = true;
-                    }
-
-                    // Handle castling rook movement
-                    if (Math.abs(selectedCol - col) == 2) {
-                        boolean kingside = col > selectedCol;
-                        int rookCol = kingside ? 7 : 0;
-                        int newRookCol = kingside ? col - 1 : col + 1;
-
-                        // Move the rook
-                        squares[row][newRookCol].setPiece(squares[row][rookCol].getPiece());
-                        squares[row][rookCol].setPiece(null);
-
-                        // Mark rook as moved
-                        if (movedPiece.getType().isWhite()) {
-                            whiteRooksMoved[kingside ? 1 : 0] = true;
-                        } else {
-                            blackRooksMoved[kingside ? 1 : 0] = true;
-                        }
-                    }
-                }
+            int from = Position.square(selectedRow, selectedCol);
+            int to = Position.square(row, col);
 
-
-
-                // Move the piece
-                squares[selectedRow][selectedCol].setPiece(null);
-                squares[row][col].setPiece(selectedPiece);
-
-
-
-                // Handle pawn promotion (always to queen for simplicity)
-                if ((selectedPiece.getType() == PieceType.PAWN_WHITE && row == 0) ||
-                        (selectedPiece.getType() == PieceType.PAWN_BLACK && row == 7)) {
-                    squares[row][col].setPiece(new Piece(
-                            selectedPiece.getType().isWhite() ? PieceType.QUEEN_WHITE : PieceType.QUEEN_BLACK));
-                }
+            // Check if the move is valid
+            int move = findLegalMove(from, to);
+            if (move != Move.NONE) {
+                // Castling, en passant and promotion are handled by the position
+                position.makeMove(move);
+                renderSquares(Move.touchedSquares(move));
 
                 // Switch turns
-                isWhiteTurn = !isWhiteTurn;
                 updateTurnIndicator();
-                addToMoveHistory();
+                addToMoveHistory(move);
             }
 
             // Reset selection (whether move was valid or not)
             squares[selectedRow][selectedCol].setBackground(
                     (selectedRow + selectedCol) % 2 == 0 ? Color.WHITE : new Color(180, 180, 180));
 
-            selectedPiece = null;
             selectedRow = -1;
             selectedCol = -1;
 
         }
     }
 
-
-    private String generateFEN() {
-        StringBuilder fen = new StringBuilder();
-
-        // Piece placement
-        for (int row = 0; row < 8; row++) {
-            int emptyCount = 0;
-
-            for (int col = 0; col < 8; col++) {
-                Piece piece = squares[row][col].getPiece();
-
-                if (piece == null) {
-                    emptyCount++;
-                } else {
-                    if (emptyCount > 0) {
-                        fen.append(emptyCount);
-                        emptyCount = 0;
-                    }
-                    fen.append(pieceToFen.get(piece.getType()));
-                }
-            }
-
-            if (emptyCount > 0) {
-                fen.append(emptyCount);
-            }
-
-            if (row < 7) {
-                fen.append("/");
+    // Looks the clicked squares up in the position's legal moves; pawns always promote to a queen
+    private int findLegalMove(int from, int to) {
+        int count = MoveGenerator.generateLegal(position, legalMoves);
+        for (int i = 0; i < count; i++) {
+            int move = legalMoves[i];
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (!Move.isPromotion(move) || Move.promotionKind(move) == Pieces.QUEEN)) {
+                return move;
             }
         }
-
-        // Active color
-        fen.append(isWhiteTurn ? " w " : " b ");
-
-        // Castling availability
-        StringBuilder castling = new StringBuilder();
-        if (!whiteKingMoved) {
-            if (!whiteRooksMoved[1]) castling.append("K");
-            if (!whiteRooksMoved[0]) castling.append("Q");
-        }
-        if (!blackKingMoved) {
-            if (!blackRooksMoved[1]) castling.append("k");
-            if (!blackRooksMoved[0]) castling.append("q");
-        }
-        fen.append(castling.length() > 0 ? castling.toString() : "-");
-        fen.append(" ");
-
-        // En passant
-        if (enPassantTarget != null) {
-            char colChar = (char) ('a' + enPassantTarget[1]);
-            int rowNum = 8 - enPassantTarget[0];
-            fen.append(colChar).append(rowNum).append(" ");
-        } else {
-            fen.append("- ");
-        }
-
-        // Halfmove clock and fullmove number (simplified)
-        fen.append("0 1");
-
-        fenTextField.setText(fen.toString());
-        return fen.toString();
+        return Move.NONE;
     }
 
-    private boolean isValidMove(int fromRow, int fromCol, int toRow, int toCol) {
-        Piece piece = squares[fromRow][fromCol].getPiece();
-        if (piece == null) return false;
-
-        // Check if it's the current player's turn
-        if (piece.getType().isWhite() != isWhiteTurn) {
-            return false;
-        }
-
-        // Check if destination has a piece of the same color
-        Piece targetPiece = squares[toRow][toCol].getPiece();
-        if (targetPiece != null && targetPiece.getType().isWhite() == piece.getType().isWhite()) {
-            return false;
-        }
-
-        // First check piece-specific movement rules
-        boolean validMove = false;
-        switch (piece.getType()) {
-            case PAWN_WHITE:
-            case PAWN_BLACK:
-                validMove = isValidPawnMove(fromRow, fromCol, toRow, toCol);
-                break;
-            case KNIGHT_WHITE:
-            case KNIGHT_BLACK:
-                validMove = isValidKnightMove(fromRow, fromCol, toRow, toCol);
-                break;
-            case BISHOP_WHITE:
-            case BISHOP_BLACK:
-                validMove = isValidBishopMove(fromRow, fromCol, toRow, toCol);
-                break;
-            case ROOK_WHITE:
-            case ROOK_BLACK:
-                validMove = isValidRookMove(fromRow, fromCol, toRow, toCol);
-                break;
-            case QUEEN_WHITE:
-            case QUEEN_BLACK:
-                validMove = isValidQueenMove(fromRow, fromCol, toRow, toCol);
-                break;
-            case KING_WHITE:
-            case KING_BLACK:
-                return Math.abs(fromRow - toRow) <= 1 && Math.abs(fromCol - toCol) <= 1;
-
-        }
-
-        if (!validMove) {
-            return false;
-        }
-
-        // Simulate the move to check if it leaves king in check
-        Piece temp = squares[toRow][toCol].getPiece();
-        squares[toRow][toCol].setPiece(piece);
-        squares[fromRow][fromCol].setPiece(null);
-
-        boolean inCheckAfterMove = isKingInCheck(piece.getType().isWhite());
-
-        // Undo the simulation
-        squares[fromRow][fromCol].setPiece(piece);
-        squares[toRow][toCol].setPiece(temp);
-
-        if (inCheckAfterMove) {
-            return false;
-        }
-
-        return true;
-    }
-
-    private boolean isKingInCheck(boolean isWhite) {
-        // Find the king's position
-        int kingRow = -1, kingCol = -1;
+    // Square panels only mirror the position; untouched squares keep their current label
+    private void renderBoard() {
         for (int row = 0; row < 8; row++) {
             for (int col = 0; col < 8; col++) {
-                Piece piece = squares[row][col].getPiece();
-                if (piece != null && piece.getType().isWhite() == isWhite &&
-                        (piece.getType() == PieceType.KING_WHITE || piece.getType() == PieceType.KING_BLACK)) {
-                    kingRow = row;
-                    kingCol = col;
-                    break;
+                int code = position.pieceAt(row, col);
+                Piece piece = code == Pieces.EMPTY ? null : PIECES[code];
+                if (squares[row][col].getPiece() != piece) {
+                    squares[row][col].setPiece(piece);
                 }
             }
-            if (kingRow != -1) break;
-        }
-
-        if (kingRow == -1) return false; // shouldn't happen
-
-        // Check if any opponent piece can attack the king
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                Piece piece = squares[row][col].getPiece();
-                if (piece != null && piece.getType().isWhite() != isWhite) {
-                    if (isValidAttack(row, col, kingRow, kingCol)) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        return false;
-    }
-
-    private boolean isValidAttack(int fromRow, int fromCol, int toRow, int toCol) {
-        Piece attacker = squares[fromRow][fromCol].getPiece();
-        if (attacker == null) return false;
-
-        // Special handling for pawn attacks (different from movement)
-        if (attacker.getType() == PieceType.PAWN_WHITE) {
-            return (fromRow - toRow == 1) && (Math.abs(fromCol - toCol) == 1);
-        }
-        if (attacker.getType() == PieceType.PAWN_BLACK) {
-            return (toRow - fromRow == 1) && (Math.abs(fromCol - toCol) == 1);
-        }
-
-        // For other pieces, use their normal movement rules
-        switch (attacker.getType()) {
-            case KNIGHT_WHITE:
-            case KNIGHT_BLACK:
-                return isValidKnightMove(fromRow, fromCol, toRow, toCol);
-            case BISHOP_WHITE:
-            case BISHOP_BLACK:
-                return isValidBishopMove(fromRow, fromCol, toRow, toCol);
-            case ROOK_WHITE:
-            case ROOK_BLACK:
-                return isValidRookMove(fromRow, fromCol, toRow, toCol);
-            case QUEEN_WHITE:
-            case QUEEN_BLACK:
-                return isValidQueenMove(fromRow, fromCol, toRow, toCol);
-            case KING_WHITE:
-            case KING_BLACK:
-                // Makes it so they can only move between 1 space
-                return Math.abs(fromRow - toRow) <= 1 && Math.abs(fromCol - toCol) <= 1;
-            default:
-                return false;
-        }
-    }
-
-
-    private boolean isValidMoveForCheck(int fromRow, int fromCol, int toRow, int toCol) {
-        Piece piece = squares[fromRow][fromCol].getPiece();
-        if (piece == null) return false;
-
-        // Simplified movement checks just for check detection
-        switch (piece.getType()) {
-            case PAWN_WHITE:
-                return (Math.abs(fromCol - toCol) == 1 && fromRow - toRow == 1); // Pawn capture
-            case PAWN_BLACK:
-                return (Math.abs(fromCol - toCol) == 1 && toRow - fromRow == 1);
-            case KNIGHT_WHITE:
-            case KNIGHT_BLACK:
-                return (Math.abs(fromRow - toRow) == 2 && Math.abs(fromCol - toCol) == 1) ||
-                        (Math.abs(fromRow - toRow) == 1 && Math.abs(fromCol - toCol) == 2);
-            case BISHOP_WHITE:
-            case BISHOP_BLACK:
-                return isValidBishopMove(fromRow, fromCol, toRow, toCol);
-            case ROOK_WHITE:
-            case ROOK_BLACK:
-                return isValidRookMove(fromRow, fromCol, toRow, toCol);
-            case QUEEN_WHITE:
-            case QUEEN_BLACK:
-                return isValidQueenMove(fromRow, fromCol, toRow, toCol);
-            case KING_WHITE:
-            case KING_BLACK:
-                return Math.abs(fromRow - toRow) <= 1 && Math.abs(fromCol - toCol) <= 1;
-        }
-        return false;
-    }
-
-
-    private boolean isValidQueenMove(int fromRow, int fromCol, int toRow, int toCol) {
-        // Queen combines rook and bishop movement
-        return isValidRookMove(fromRow, fromCol, toRow, toCol) ||
-                isValidBishopMove(fromRow, fromCol, toRow, toCol);
-    }
-
-    private boolean isValidRookMove(int fromRow, int fromCol, int toRow, int toCol) {
-        // Must move in straight line (same row or same column)
-        if (fromRow != toRow && fromCol != toCol) {
-            return false;
-        }
-
-        // Determine direction of movement
-        int rowStep = Integer.compare(toRow, fromRow);
-        int colStep = Integer.compare(toCol, fromCol);
-
-        // Check if path is clear
-        int currentRow = fromRow + rowStep;
-        int currentCol = fromCol + colStep;
-
-        while (currentRow != toRow || currentCol != toCol) {
-            if (squares[currentRow][currentCol].getPiece() != null) {
-                return false; // Path is blocked
-            }
-            currentRow += rowStep;
-            currentCol += colStep;
         }
-
-        return true;
-    }
-
-    private boolean isValidKnightMove(int fromRow, int fromCol, int toRow, int toCol) {
-        // Calculate row and column differences
-        int rowDiff = Math.abs(toRow - fromRow);
-        int colDiff = Math.abs(toCol - fromCol);
-
-        // Knight moves in L-shape: 2 squares in one direction and 1 square perpendicular
-        return (rowDiff == 2 && colDiff == 1) || (rowDiff == 1 && colDiff == 2);
     }
 
-    private boolean isValidBishopMove(int fromRow, int fromCol, int toRow, int toCol) {
-        // Must move diagonally
-        if (Math.abs(fromRow - toRow) != Math.abs(fromCol - toCol)) {
-            return false;
-        }
-
-        int rowDirection = (toRow > fromRow) ? 1 : -1;
-        int colDirection = (toCol > fromCol) ? 1 : -1;
 
-        // Check if path is clear
-        int currentRow = fromRow + rowDirection;
-        int currentCol = fromCol + colDirection;
-
-        while (currentRow != toRow || currentCol != toCol) {
-            if (squares[currentRow][currentCol].getPiece() != null) {
-                return false; // Path is blocked
-            }
-            currentRow += rowDirection;
-            currentCol += colDirection;
+    // Same as renderBoard for the given squares only (a bitboard, e.g. the squares one move touched)
+    private void renderSquares(long touched) {
+        for (; touched != 0; touched &= touched - 1) {
+            int square = Long.numberOfTrailingZeros(touched);
+            int code = position.pieceAt(square);
+            squares[Position.row(square)][Position.col(square)].setPiece(code == Pieces.EMPTY ? null : PIECES[code]);
         }
-
-        return true;
     }
 
-    private boolean isValidPawnMove(int fromRow, int fromCol, int toRow, int toCol) {
-        Piece pawn = squares[fromRow][fromCol].getPiece();
-        boolean isWhite = pawn.getType().isWhite();
-        int direction = isWhite ? -1 : 1; // White moves up (decreasing row), black moves down
-
-        // Normal forward move (1 square)
-        if (fromCol == toCol && squares[toRow][toCol].getPiece() == null) {
-            // Single square forward
-            if (toRow == fromRow + direction) {
-                return true;
-            }
-            // Two squares forward from starting position
-            if ((isWhite && fromRow == 6) || (!isWhite && fromRow == 1)) {
-                if (toRow == fromRow + 2 * direction &&
-                        squares[fromRow + direction][fromCol].getPiece() == null &&
-                        squares[toRow][toCol].getPiece() == null) {
-                    // Set en passant target
-                    enPassantTarget = new int[]{fromRow + direction, fromCol};
-                    return true;
-                }
-            }
-        }
 
-        // Capture (diagonal)
-        if (Math.abs(fromCol - toCol) == 1 && toRow == fromRow + direction) {
-            // Normal capture
-            if (squares[toRow][toCol].getPiece() != null) {
-                return true;
-            }
-            // En passant capture
-            if (enPassantTarget != null && toRow == enPassantTarget[0] && toCol == enPassantTarget[1]) {
-                squares[fromRow][enPassantTarget[1]].setPiece(null); // Remove the captured pawn
-                return true;
-            }
-        }
-
-        return false;
+    private String generateFEN() {
+        String fen = position.toFen();
+        fenTextField.setText(fen);
+        return fen;
     }
 
 
     private void initializeFEN() {
-        String fen = fenTextField.getText().trim();
-        String[] parts = fen.split(" ");
-        if (parts.length < 1) return;
-
-        // Only add to history if this is a new position (not from navigation)
-        if (currentHistoryIndex == -1 || !fen.equals(fenHistory.get(currentHistoryIndex))) {
-            fenHistory.add(fen);
-            currentHistoryIndex = fenHistory.size() - 1;
-        }
-
-        // Parse active color from FEN
-        if (parts.length >= 2) {
-            isWhiteTurn = parts[1].equalsIgnoreCase("w");
-        } else {
-            isWhiteTurn = true;
-        }
-
-        // Parse en passant target square
-        if (parts.length >= 3 && !parts[2].equals("-")) {
-            String ep = parts[2];
-            int col = ep.charAt(0) - 'a';
-            int row = 8 - Character.getNumericValue(ep.charAt(1));
-            enPassantTarget = new int[]{row, col};
-        } else {
-            enPassantTarget = null;
-        }
-
-        if (parts.length >= 3) {
-            String castling = parts[2];
-            whiteRooksMoved[1] = !castling.contains("K"); // kingside
-            whiteRooksMoved[0] = !castling.contains("Q"); // queenside
-            blackRooksMoved[1] = !castling.contains("k");
-            blackRooksMoved[0] = !castling.contains("q");
-            whiteKingMoved = !(castling.contains("K") || castling.contains("Q"));
-            blackKingMoved = !(castling.contains("k") || castling.contains("q"));
-        }
-
-        String[] ranks = parts[0].split("/");
-        if (ranks.length != 8) {
-            JOptionPane.showMessageDialog(this, "Invalid FEN - must have 8 ranks", "Error", JOptionPane.ERROR_MESSAGE);
+        String text = fenTextField.getText();
+        String fen = text.trim();
+        if (fen.isEmpty()) return;
+
+        // A bad FEN is pointed out in the field itself: the offending character is selected and the
+        // reason shown in place of the turn indicator
+        if (!fenParser.tryParse(text, loadedPosition)) {
+            int index = Math.min(fenParser.errorIndex(), text.length() - 1);
+            fenTextField.requestFocusInWindow();
+            fenTextField.select(index, index + 1);
+            turnLabel.setText(fenParser.exception().getMessage());
+            turnLabel.setBackground(new Color(255, 200, 200));
+            turnLabel.setForeground(Color.BLACK);
             return;
         }
 
-        // Clear the board
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                squares[row][col].setPiece(null);
-            }
+        // Only add to history if this is a new position (not the one already on the board)
+        if (currentHistoryIndex == -1 || loadedPosition.key() != position.key()) {
+            history.appendPosition(loadedPosition);
+            currentHistoryIndex = history.size() - 1;
         }
 
-        // Parse the FEN string
-        try {
-            for (int row = 0; row < 8; row++) {
-                String rank = ranks[row];
-                int col = 0;
-
-                for (int i = 0; i < rank.length(); i++) {
-                    char c = rank.charAt(i);
-
-                    if (Character.isDigit(c)) {
-                        int emptySquares = Character.getNumericValue(c);
-                        col += emptySquares;
-                    } else {
-                        PieceType type = fenToPiece.get(c);
-                        if (type != null) {
-                            squares[row][col].setPiece(new Piece(type));
-                        }
-                        col++;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Invalid FEN format", "Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
-        }
+        position.copyFrom(loadedPosition);
+        renderBoard();
         backButton.setEnabled(currentHistoryIndex > 0);
-        forwardButton.setEnabled(currentHistoryIndex < fenHistory.size() - 1);
+        forwardButton.setEnabled(currentHistoryIndex < shownHistory().size() - 1);
         updateTurnIndicator();
     }
 
 
 
     public static void main(String[] args) {
+        // Command-line arguments select a headless tool instead of the board window
+        if (args.length > 0) {
+            System.exit(runCommand(args));
+        }
+
         SwingUtilities.invokeLater(() -> {
             new ChessApplication().setVisible(true);
         });
     }
+
+    private static int runCommand(String[] args) {
+        if (PerftRunner.isCommand(args[0])) {
+            return PerftRunner.run(args);
+        }
+        if (BackendBenchmark.isCommand(args[0])) {
+            return BackendBenchmark.run(args);
+        }
+        if (FenValidator.isCommand(args[0])) {
+            return FenValidator.run(args);
+        }
+        if (TokenizerBenchmark.isCommand(args[0])) {
+            return TokenizerBenchmark.run(args);
+        }
+        System.err.println("Unknown command: " + args[0]);
+        System.err.println("Commands: perft, divide, parallel, suite, backends, validate, tokenizer");
+        return 2;
+    }
 }
@@ -0,0 +1,24 @@
+package chess.backend;
+
+// One way of storing the board, driven the same way by BackendBenchmark. Every backend speaks the
+// chess.core conventions (squares a1 = 0 .. h8 = 63, piece codes from Pieces, moves packed by Move),
+// so their perft counts can be checked against each other and against Position.
+public interface BoardBackend {
+    String name();
+
+    void setFen(String fen);
+
+    String toFen();
+
+    // Piece code on a chess.core square, or Pieces.EMPTY
+    int pieceAt(int square);
+
+    // Fills the buffer (at least MoveGenerator.MAX_MOVES long) and returns the number of legal moves
+    int generateLegal(int[] moves);
+
+    void makeMove(int move);
+
+    void unmakeMove();
+
+    long perft(int depth);
+}
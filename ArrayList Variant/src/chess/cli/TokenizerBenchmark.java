@@ -0,0 +1,181 @@
+package chess.cli;
+
+import chess.core.MoveGenerator;
+import chess.core.Position;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Scalar against Vector API tokenizing:
+//   tokenizer [megabytes] [file]
+// Writes a synthetic FEN corpus of the given size (2048 MB unless told otherwise), then streams it
+// through every available FenTokenizer looking for line breaks.
+// A file given is kept, and reused if it already has that size; otherwise the corpus goes to a
+// temporary file that is deleted afterwards. Only the tokenizer calls are timed; both implementations
+// must report the same counts.
+public class TokenizerBenchmark {
+    private static final int BLOCK_SIZE = 64 << 20;
+
+    public static boolean isCommand(String name) {
+        return name.equals("tokenizer");
+    }
+
+    public static int run(String[] args) {
+        long megabytes;
+        try {
+            megabytes = args.length > 1 ? Long.parseLong(args[1]) : 2048;
+        } catch (NumberFormatException e) {
+            megabytes = 0;
+        }
+        if (megabytes < 1) {
+            System.err.println("Usage: tokenizer [megabytes] [file]");
+            return 2;
+        }
+
+        FenTokenizer[] tokenizers = {FenTokenizer.scalar(), FenTokenizer.vector()};
+        if (tokenizers[1] == null) {
+            System.out.println("Vector API tokenizer not available (compile the vector source root and run with");
+            System.out.println("--add-modules jdk.incubator.vector); timing the scalar tokenizer only");
+            System.out.println();
+        }
+
+        Path file = null;
+        boolean temporary = args.length <= 2;
+        try {
+            file = temporary ? Files.createTempFile("fen-corpus-" + megabytes + "MB", ".txt") : Paths.get(args[2]);
+            long size = megabytes << 20;
+            if (!Files.exists(file) || Files.size(file) != size) {
+                System.out.printf("Writing %,d MB of FENs to %s%n", megabytes, file);
+                writeCorpus(file, size);
+            }
+
+            byte[] block = new byte[BLOCK_SIZE];
+            int[] offsets = new int[8192];
+            long[] expected = null;
+            System.out.printf("%-24s %16s %14s%n", "tokenizer", "line breaks", "MB/s");
+            for (FenTokenizer tokenizer : tokenizers) {
+                if (tokenizer == null) {
+                    continue;
+                }
+                // Warm-up on the first block so the timed pass runs compiled code
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                    int length = read(in, 0, block);
+                    for (int i = 0; i < 5; i++) {
+                        count(tokenizer, block, length, offsets);
+                    }
+                }
+
+                long[] result = scan(file, tokenizer, block, offsets);
+                if (expected == null) {
+                    expected = result;
+                } else if (result[0] != expected[0]) {
+                    System.out.printf("%-24s FAIL: counts differ from the scalar tokenizer%n", tokenizer.name());
+                    return 1;
+                }
+                System.out.printf("%-24s %,16d %,14.0f%n", tokenizer.name(), result[0], size / 1e6 / (result[1] / 1e9));
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println("tokenizer: " + e.getMessage());
+            return 2;
+        } finally {
+            if (temporary && file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("tokenizer: could not delete " + file + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Line breaks and the nanoseconds spent finding them
+    private static long[] scan(Path file, FenTokenizer tokenizer, byte[] block, int[] offsets) throws IOException {
+        long[] result = new long[2];
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (long position = 0; position < in.size(); position += BLOCK_SIZE) {
+                int length = read(in, position, block);
+
+                long startTime = System.nanoTime();
+                result[0] += count(tokenizer, block, length, offsets);
+                result[1] += System.nanoTime() - startTime;
+            }
+        }
+        return result;
+    }
+
+    private static long count(FenTokenizer tokenizer, byte[] block, int length, int[] offsets) {
+        long total = 0;
+        int from = 0;
+        while (true) {
+            int found = tokenizer.lineEnds(block, from, length, offsets);
+            total += found;
+            if (found < offsets.length) {
+                return total;
+            }
+            from = offsets[found - 1] + 1;
+        }
+    }
+
+    private static int read(FileChannel in, long position, byte[] block) throws IOException {
+        int length = (int) Math.min(block.length, in.size() - position);
+        in.map(FileChannel.MapMode.READ_ONLY, position, length).get(block, 0, length);
+        return length;
+    }
+
+    // Every position up to two plies from a handful of test positions, repeated up to the size; the
+    // last line is padded with spaces so the file has exactly the requested length
+    private static void writeCorpus(Path file, long size) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int[][] moves = new int[2][MoveGenerator.MAX_MOVES];
+        for (String fen : new String[]{
+                Position.START_FEN,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"}) {
+            Position position = new Position(fen);
+            int count = MoveGenerator.generateLegal(position, moves[0]);
+            for (int i = 0; i < count; i++) {
+                position.makeMove(moves[0][i]);
+                text.append(position.toFen()).append('\n');
+                int replies = MoveGenerator.generateLegal(position, moves[1]);
+                for (int j = 0; j < replies; j++) {
+                    position.makeMove(moves[1][j]);
+                    text.append(position.toFen()).append('\n');
+                    position.unmakeMove();
+                }
+                position.unmakeMove();
+            }
+        }
+        byte[] pattern = text.toString().getBytes(StandardCharsets.US_ASCII);
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            long written = 0;
+            while (written < size) {
+                buffer.clear();
+                while (buffer.remaining() >= pattern.length && written + buffer.position() + pattern.length <= size) {
+                    buffer.put(pattern);
+                }
+                if (buffer.position() == 0) {
+                    // Less than one pattern left: pad with spaces and end on a line break
+                    int rest = (int) (size - written);
+                    for (int i = 0; i < rest - 1; i++) {
+                        buffer.put((byte) ' ');
+                    }
+                    buffer.put((byte) '\n');
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += out.write(buffer);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package chess.core;
+
+// Helpers for 64-bit square sets. Bit n stands for square n (a1 = bit 0, h8 = bit 63).
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_4 = RANK_1 << 24;
+    public static final long RANK_5 = RANK_1 << 32;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    private Bitboards() {
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean contains(long set, int square) {
+        return (set >>> square & 1L) != 0;
+    }
+
+    // Index of the lowest set square; the caller removes it with set &= set - 1
+    public static int first(long set) {
+        return Long.numberOfTrailingZeros(set);
+    }
+
+    public static int count(long set) {
+        return Long.bitCount(set);
+    }
+}
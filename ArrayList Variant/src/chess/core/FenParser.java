@@ -0,0 +1,303 @@
+package chess.core;
+
+import static chess.core.Pieces.*;
+
+// Single-pass FEN reader for a CharSequence or a range of ASCII bytes. Every character is classified
+// through one 128-entry table; the placement goes into a scratch array owned by the parser and is
+// copied into the target Position only once the whole record has been read, so a failed parse
+// leaves the position as it was. Nothing is allocated per record: tryParse reports a failure through
+// error() and errorIndex() instead of throwing, which keeps bulk validation of large corpora cheap.
+// Besides the syntax, a record is turned down for a pawn on the first or last rank, or an en passant
+// square that the last move cannot have left, since move generation relies on neither happening.
+// A parser instance is not thread-safe; the static parse methods use one per thread.
+public final class FenParser {
+    // Table entries: piece codes 0..11, DIGIT + n for '1'..'8', SEPARATOR for blanks, or INVALID
+    private static final byte INVALID = -1;
+    private static final byte DIGIT = 16;
+    private static final byte SEPARATOR = 32;
+    private static final byte[] CLASSES = new byte[128];
+
+    private static final int MAX_FULLMOVE = 1_000_000;
+
+    static {
+        java.util.Arrays.fill(CLASSES, INVALID);
+        String pieces = "PNBRQKpnbrqk";
+        for (int piece = 0; piece < pieces.length(); piece++) {
+            CLASSES[pieces.charAt(piece)] = (byte) piece;
+        }
+        for (int n = 1; n <= 8; n++) {
+            CLASSES['0' + n] = (byte) (DIGIT + n);
+        }
+        CLASSES[' '] = CLASSES['\t'] = CLASSES['\r'] = CLASSES['\n'] = SEPARATOR;
+    }
+
+    private static final ThreadLocal<FenParser> PARSERS = ThreadLocal.withInitial(FenParser::new);
+
+    private final int[] placement = new int[64];
+    private CharSequence text;
+    private byte[] bytes;
+    private int start;
+    private int end;
+    private int index;
+    private String error;
+    private int errorIndex = -1;
+
+    // Parses into the position or throws FenFormatException, leaving the position unchanged
+    public static void parse(CharSequence fen, Position into) {
+        FenParser parser = PARSERS.get();
+        if (!parser.tryParse(fen, into)) {
+            throw parser.exception();
+        }
+    }
+
+    public static void parse(byte[] fen, int offset, int length, Position into) {
+        FenParser parser = PARSERS.get();
+        if (!parser.tryParse(fen, offset, length, into)) {
+            throw parser.exception();
+        }
+    }
+
+    public boolean tryParse(CharSequence fen, Position into) {
+        text = fen;
+        bytes = null;
+        try {
+            return run(0, fen.length(), into);
+        } finally {
+            text = null;
+        }
+    }
+
+    public boolean tryParse(byte[] fen, int offset, int length, Position into) {
+        text = null;
+        bytes = fen;
+        try {
+            return run(offset, offset + length, into);
+        } finally {
+            bytes = null;
+        }
+    }
+
+    // Why the last tryParse failed, or null if it succeeded
+    public String error() {
+        return error;
+    }
+
+    // Index of the offending character in the last input, relative to its start, or -1
+    public int errorIndex() {
+        return errorIndex;
+    }
+
+    public FenFormatException exception() {
+        return new FenFormatException(error, errorIndex);
+    }
+
+    private int charAt(int i) {
+        return bytes != null ? bytes[i] & 0xFF : text.charAt(i);
+    }
+
+    private int classOf(int i) {
+        int c = charAt(i);
+        return c < 128 ? CLASSES[c] : INVALID;
+    }
+
+    private boolean run(int from, int to, Position into) {
+        start = from;
+        end = to;
+        index = from;
+        error = null;
+        errorIndex = -1;
+
+        skipSeparators();
+        if (index == end) {
+            return fail("empty record");
+        }
+
+        // Piece placement, rank 8 first
+        int row = 0;
+        int col = 0;
+        for (; index < end; index++) {
+            int type = classOf(index);
+            if (type == SEPARATOR) {
+                break;
+            }
+            if (type >= 0 && type < 12) {
+                if (col == 8) {
+                    return fail("rank has more than 8 squares");
+                }
+                if (kind(type) == PAWN && (row == 0 || row == 7)) {
+                    return fail("pawn on the first or last rank");
+                }
+                placement[Position.square(row, col++)] = type;
+            } else if (type > DIGIT && type < SEPARATOR) {
+                int run = type - DIGIT;
+                if (col + run > 8) {
+                    return fail("rank has more than 8 squares");
+                }
+                for (int i = 0; i < run; i++) {
+                    placement[Position.square(row, col++)] = EMPTY;
+                }
+            } else if (charAt(index) == '/') {
+                if (col != 8) {
+                    return fail("rank has fewer than 8 squares");
+                }
+                if (row == 7) {
+                    return fail("more than 8 ranks");
+                }
+                row++;
+                col = 0;
+            } else {
+                return fail("unexpected character in piece placement");
+            }
+        }
+        if (col != 8) {
+            return fail("rank has fewer than 8 squares");
+        }
+        if (row != 7) {
+            return fail("fewer than 8 ranks");
+        }
+
+        // The remaining fields are optional and default to "w - - 0 1"
+        int side = WHITE;
+        if (nextField()) {
+            int c = charAt(index);
+            if (c == 'w' || c == 'W') {
+                side = WHITE;
+            } else if (c == 'b' || c == 'B') {
+                side = BLACK;
+            } else {
+                return fail("side to move must be w or b");
+            }
+            index++;
+            if (!endOfField()) {
+                return fail("side to move must be w or b");
+            }
+        }
+
+        int rights = 0;
+        if (nextField()) {
+            if (charAt(index) == '-') {
+                index++;
+            } else {
+                for (; !endOfField(); index++) {
+                    int right = castlingRight(charAt(index));
+                    if (right == 0) {
+                        return fail("castling rights must be - or letters from KQkq");
+                    }
+                    if ((rights & right) != 0) {
+                        return fail("castling right given twice");
+                    }
+                    rights |= right;
+                }
+            }
+            if (!endOfField()) {
+                return fail("castling rights must be - or letters from KQkq");
+            }
+        }
+
+        int ep = Position.NO_SQUARE;
+        if (nextField()) {
+            if (charAt(index) == '-') {
+                index++;
+            } else {
+                int file = charAt(index) - 'a';
+                if (file < 0 || file > 7 || index + 1 == end) {
+                    return fail("en passant square must be - or a square such as e3");
+                }
+                index++;
+                int rank = charAt(index) - '1';
+                if (rank != (side == WHITE ? 5 : 2)) {
+                    return fail("en passant square must be on rank 6 with white to move or rank 3 with black");
+                }
+                ep = rank * 8 + file;
+                // The pawn that just moved two squares stands in front of the square, and both squares
+                // it passed are empty
+                int forward = side == WHITE ? 8 : -8;
+                if (placement[ep - forward] != make(side ^ 1, PAWN)
+                        || placement[ep] != EMPTY || placement[ep + forward] != EMPTY) {
+                    index--;
+                    return fail("en passant square does not follow a double pawn push");
+                }
+                index++;
+            }
+            if (!endOfField()) {
+                return fail("en passant square must be - or a square such as e3");
+            }
+        }
+
+        int halfmove = 0;
+        if (nextField()) {
+            halfmove = readNumber(0xFFFF);
+            if (halfmove < 0) {
+                return fail("halfmove clock must be a number from 0 to 65535");
+            }
+        }
+
+        int fullmove = 1;
+        if (nextField()) {
+            fullmove = readNumber(MAX_FULLMOVE);
+            if (fullmove < 1) {
+                return fail("fullmove number must be a number from 1 to " + MAX_FULLMOVE);
+            }
+        }
+
+        if (nextField()) {
+            return fail("unexpected text after the move counters");
+        }
+
+        into.load(placement, side, rights, ep, halfmove, fullmove);
+        return true;
+    }
+
+    private static int castlingRight(int c) {
+        switch (c) {
+            case 'K':
+                return Position.WHITE_KINGSIDE;
+            case 'Q':
+                return Position.WHITE_QUEENSIDE;
+            case 'k':
+                return Position.BLACK_KINGSIDE;
+            case 'q':
+                return Position.BLACK_QUEENSIDE;
+            default:
+                return 0;
+        }
+    }
+
+    // Digits up to the end of the field, or -1 (with the index back at the field start) if the field
+    // holds anything else or a value above max
+    private int readNumber(int max) {
+        int fieldStart = index;
+        int value = 0;
+        for (; !endOfField(); index++) {
+            int digit = charAt(index) - '0';
+            value = value * 10 + digit;
+            if (digit < 0 || digit > 9 || value > max) {
+                index = fieldStart;
+                return -1;
+            }
+        }
+        return value;
+    }
+
+    // Skips the blanks before the next field; false at the end of the input
+    private boolean nextField() {
+        skipSeparators();
+        return index < end;
+    }
+
+    private boolean endOfField() {
+        return index == end || classOf(index) == SEPARATOR;
+    }
+
+    private void skipSeparators() {
+        while (index < end && classOf(index) == SEPARATOR) {
+            index++;
+        }
+    }
+
+    private boolean fail(String reason) {
+        error = reason;
+        errorIndex = index - start;
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package chess.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Perft split across a ForkJoinPool. The top splitDepth plies fan out into one task per move, each
+// with its own copy of the position; below that every task runs a plain single-threaded Perft on its
+// worker's MoveStack, so move buffers are allocated once per thread rather than once per task.
+// Counts are identical to Perft since each subtree is counted exactly once. An optional PerftTable
+// is shared by every worker, so a transposition counted on one thread is reused by the others.
+public class ParallelPerft {
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final PerftTable table;
+    private final ThreadLocal<MoveStack> stacks = ThreadLocal.withInitial(MoveStack::new);
+
+    public ParallelPerft(ForkJoinPool pool, int splitDepth) {
+        this(pool, splitDepth, null);
+    }
+
+    public ParallelPerft(ForkJoinPool pool, int splitDepth, PerftTable table) {
+        if (splitDepth < 1) {
+            throw new IllegalArgumentException("splitDepth must be at least 1");
+        }
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+        this.table = table;
+    }
+
+    public long perft(Position position, int depth) {
+        return pool.invoke(new PerftTask(new Position(position), depth, splitDepth));
+    }
+
+    private class PerftTask extends RecursiveTask<Long> {
+        private final Position position;
+        private final int depth;
+        private final int split;
+
+        PerftTask(Position position, int depth, int split) {
+            this.position = position;
+            this.depth = depth;
+            this.split = split;
+        }
+
+        @Override
+        protected Long compute() {
+            // Shallow subtrees are cheaper to count than to fork
+            if (split == 0 || depth <= 2) {
+                return new Perft(position, stacks.get(), table).perft(depth);
+            }
+
+            if (table != null) {
+                long cached = table.probe(position.key(), depth);
+                if (cached >= 0) {
+                    return cached;
+                }
+            }
+
+            // The buffer is only read before invokeAll, so a task this thread runs meanwhile may reuse it
+            int[] moves = stacks.get().ply(depth - 1);
+            int count = MoveGenerator.generateLegal(position, moves);
+            PerftTask[] tasks = new PerftTask[count];
+            for (int i = 0; i < count; i++) {
+                Position child = new Position(position);
+                child.makeMove(moves[i]);
+                tasks[i] = new PerftTask(child, depth - 1, split - 1);
+            }
+            invokeAll(tasks);
+
+            long nodes = 0;
+            for (PerftTask task : tasks) {
+                nodes += task.join();
+            }
+
+            if (table != null) {
+                table.store(position.key(), depth, nodes);
+            }
+            return nodes;
+        }
+    }
+}
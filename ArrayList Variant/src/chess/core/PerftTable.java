@@ -0,0 +1,48 @@
+package chess.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed-size cache of perft results keyed by (Zobrist key, depth), safe to share between threads
+// without locks. Each entry is two longs written independently: (key ^ data) and data, where data
+// packs the node count above an 8-bit depth. A reader only trusts an entry if XOR-ing the two
+// halves gives back its key, so an entry torn by two concurrent writers reads as a miss.
+public class PerftTable {
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    public PerftTable(int megabytes) {
+        long entries = Math.max(1, (long) megabytes << 20) / 16;
+        // Round down to a power of two so the index is a mask
+        int size = Integer.highestOneBit((int) Math.min(entries, 1 << 28));
+        this.slots = new AtomicLongArray(size * 2);
+        this.mask = size - 1;
+    }
+
+    // Node count stored for this position and depth, or -1 if there is none
+    public long probe(long key, int depth) {
+        int index = index(key, depth);
+        long data = slots.getOpaque(index + 1);
+        long check = slots.getOpaque(index);
+        if ((check ^ data) == key && (data & 0xFF) == depth) {
+            return data >>> 8;
+        }
+        return -1;
+    }
+
+    public void store(long key, int depth, long nodes) {
+        int index = index(key, depth);
+        long data = nodes << 8 | depth;
+        slots.setOpaque(index, key ^ data);
+        slots.setOpaque(index + 1, data);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    private int index(long key, int depth) {
+        // Mix the depth in so the same position at different depths uses different entries
+        long h = key ^ depth * 0x9E3779B97F4A7C15L;
+        return ((int) (h ^ h >>> 32) & mask) << 1;
+    }
+}
@@ -0,0 +1,54 @@
+package chess.core;
+
+// Piece codes used by the headless engine. Codes line up with chess.model.PieceType ordinals
+// (white pawn..king = 0..5, black pawn..king = 6..11) so the UI can map them without a lookup table.
+public final class Pieces {
+    public static final int EMPTY = -1;
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    // Piece kinds, independent of color
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int WHITE_PAWN = 0;
+    public static final int WHITE_KNIGHT = 1;
+    public static final int WHITE_BISHOP = 2;
+    public static final int WHITE_ROOK = 3;
+    public static final int WHITE_QUEEN = 4;
+    public static final int WHITE_KING = 5;
+    public static final int BLACK_PAWN = 6;
+    public static final int BLACK_KNIGHT = 7;
+    public static final int BLACK_BISHOP = 8;
+    public static final int BLACK_ROOK = 9;
+    public static final int BLACK_QUEEN = 10;
+    public static final int BLACK_KING = 11;
+
+    private Pieces() {
+    }
+
+    public static int make(int color, int kind) {
+        return color * 6 + kind;
+    }
+
+    public static int color(int piece) {
+        return piece < 6 ? WHITE : BLACK;
+    }
+
+    public static int kind(int piece) {
+        return piece < 6 ? piece : piece - 6;
+    }
+
+    public static boolean isWhite(int piece) {
+        return piece >= 0 && piece < 6;
+    }
+
+    public static boolean isBlack(int piece) {
+        return piece >= 6;
+    }
+}
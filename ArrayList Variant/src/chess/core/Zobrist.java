@@ -0,0 +1,74 @@
+package chess.core;
+
+// Random 64-bit keys for Zobrist hashing. A position's key is the XOR of the keys of every piece on
+// its square, the side key when black is to move, the castling-rights key and the en passant file key,
+// so a move updates it with a few XORs. The generator is seeded, so keys are the same on every run.
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                seed = next(seed);
+                PIECE_SQUARE[piece][sq] = seed * 0x9E3779B97F4A7C15L;
+            }
+        }
+        // No rights hash to zero so a position without castling keeps the key of its pieces
+        for (int rights = 1; rights < 16; rights++) {
+            seed = next(seed);
+            CASTLING[rights] = seed * 0x9E3779B97F4A7C15L;
+        }
+        for (int file = 0; file < 8; file++) {
+            seed = next(seed);
+            EN_PASSANT_FILE[file] = seed * 0x9E3779B97F4A7C15L;
+        }
+        seed = next(seed);
+        BLACK_TO_MOVE = seed * 0x9E3779B97F4A7C15L;
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int square) {
+        return square == Position.NO_SQUARE ? 0L : EN_PASSANT_FILE[square & 7];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    // Full recomputation; Position keeps its key up to date incrementally and this is the reference
+    public static long keyOf(Position pos) {
+        long key = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = pos.pieceAt(sq);
+            if (piece != Pieces.EMPTY) {
+                key ^= PIECE_SQUARE[piece][sq];
+            }
+        }
+        if (pos.sideToMove() == Pieces.BLACK) {
+            key ^= BLACK_TO_MOVE;
+        }
+        return key ^ CASTLING[pos.castlingRights()] ^ enPassant(pos.enPassantSquare());
+    }
+
+    // xorshift64
+    private static long next(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+}
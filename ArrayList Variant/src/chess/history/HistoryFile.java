@@ -0,0 +1,174 @@
+package chess.history;
+
+import chess.core.FenWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+
+// A history left in its file and read an entry at a time, so opening one costs the same at any size.
+// Two formats, told apart by their first bytes:
+//   indexed (IndexedHistoryFile), numbers big-endian:
+//     "FENHIST1" | entry count (8 bytes) | count + 1 record offsets (8 bytes each) | records
+//     A record is one FEN in ASCII followed by '\n', so the records on their own are the plain text
+//     format. The file is mapped; the fixed-width offsets locate entry k without reading anything else.
+//   plain text (TextHistoryFile): one FEN per line, blank lines skipped. Line offsets are found by one
+//     background pass while the first entries can already be read.
+// write and writeText produce the two formats, through a direct buffer so the channel writes it as is.
+public abstract class HistoryFile implements HistoryView, Closeable {
+    public static final String EXTENSION = ".fenh";
+
+    static final byte[] MAGIC = {'F', 'E', 'N', 'H', 'I', 'S', 'T', '1'};
+    static final int HEADER_SIZE = 16;
+
+    HistoryFile() {
+    }
+
+    // True if the file starts with the indexed format's magic bytes
+    public static boolean isIndexed(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+            in.read(header, 0);
+            return header.flip().equals(ByteBuffer.wrap(MAGIC));
+        }
+    }
+
+    public static HistoryFile open(Path file) throws IOException {
+        return isIndexed(file) ? IndexedHistoryFile.map(file) : TextHistoryFile.scan(file);
+    }
+
+    // True while entries are still being found; size() grows until then
+    public boolean isLoading() {
+        return false;
+    }
+
+    // Waits until every entry has been found; throws what stopped the search early, if anything
+    public void awaitLoaded() throws IOException {
+    }
+
+    // As awaitLoaded, reporting the bytes read so far; when progress says stop, loading ends there and
+    // the entries found so far stay readable
+    public void awaitLoaded(HistoryProgress progress) throws IOException {
+        awaitLoaded();
+    }
+
+    // Ends loading early, keeping the entries found so far
+    public void stopLoading() {
+    }
+
+    // The entry's FEN as it is written in the file
+    public abstract String fenAt(int index);
+
+    // A history still loading is waited for first
+    public static void write(Path file, HistoryView history) throws IOException {
+        write(file, history, HistoryProgress.NONE);
+    }
+
+    // Reports the entries written; throws CancellationException, leaving the target as it was, when
+    // progress says stop
+    public static void write(Path file, HistoryView history, HistoryProgress progress) throws IOException {
+        awaitLoaded(history);
+        replace(file, out -> {
+            // Records first, behind the room the index needs, then the header and index in front of them
+            int count = history.size();
+            long[] offsets = new long[count + 1];
+            out.position(HEADER_SIZE + 8L * (count + 1));
+            offsets[count] = writeRecords(out, history, offsets, progress);
+
+            out.position(0);
+            ByteBuffer index = ByteBuffer.allocateDirect(1 << 16);
+            index.put(MAGIC).putLong(count);
+            for (long offset : offsets) {
+                if (!index.hasRemaining()) {
+                    flush(out, index);
+                }
+                index.putLong(offset);
+            }
+            flush(out, index);
+        });
+    }
+
+    // One FEN per line
+    public static void writeText(Path file, HistoryView history) throws IOException {
+        writeText(file, history, HistoryProgress.NONE);
+    }
+
+    public static void writeText(Path file, HistoryView history, HistoryProgress progress) throws IOException {
+        awaitLoaded(history);
+        replace(file, out -> writeRecords(out, history, null, progress));
+    }
+
+    static void awaitLoaded(HistoryView history) throws IOException {
+        if (history instanceof HistoryFile) {
+            ((HistoryFile) history).awaitLoaded();
+        }
+    }
+
+    interface Writer {
+        void writeTo(FileChannel out) throws IOException;
+    }
+
+    // Fills a temporary file next to the target and moves it over the target once complete, so a file
+    // that is still mapped (even the one being exported) is never truncated under its reader
+    static void replace(Path file, Writer writer) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writer.writeTo(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Writes every entry as a line at the channel's position, noting where each one starts if offsets
+    // is given; returns the channel position after the last one. Progress is told at every flush.
+    private static long writeRecords(FileChannel out, HistoryView history, long[] offsets,
+                                     HistoryProgress progress) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        int total = history.size();
+        int[] entry = {0};
+        try {
+            history.forEachPosition(position -> {
+                try {
+                    if (buffer.remaining() < FenWriter.MAX_LENGTH + 1) {
+                        flush(out, buffer);
+                        if (!progress.update(entry[0], total)) {
+                            throw new CancellationException("stopped after " + entry[0] + " of " + total + " entries");
+                        }
+                    }
+                    if (offsets != null) {
+                        offsets[entry[0]] = out.position() + buffer.position();
+                    }
+                    entry[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                FenWriter.write(position, buffer);
+                buffer.put((byte) '\n');
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        flush(out, buffer);
+        progress.update(entry[0], total);
+        return out.position();
+    }
+
+    static void flush(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
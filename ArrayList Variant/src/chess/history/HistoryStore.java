@@ -0,0 +1,46 @@
+package chess.history;
+
+import java.util.PrimitiveIterator;
+
+// The moves of a MoveHistory, one 16-bit value per entry, behind one interface so the collections the
+// three variants were built around can be compared against plain arrays on equal terms (see the JMH
+// suite in the jmh source root). Values are stored as given and read back as 0..65535.
+public interface HistoryStore {
+    String name();
+
+    void append(int move);
+
+    // Drops every entry after the given one; -1 empties the store
+    void truncateAfter(int index);
+
+    int get(int index);
+
+    int size();
+
+    // Entries from the given index on, in order; cheaper than get(i) in a loop for the linked list
+    PrimitiveIterator.OfInt iterator(int fromIndex);
+
+    default PrimitiveIterator.OfInt iterator() {
+        return iterator(0);
+    }
+
+    // "arraylist", "linkedlist", "hashmap", "array", "chunked" or "offheap"
+    static HistoryStore create(String name) {
+        switch (name) {
+            case "arraylist":
+                return new ArrayListHistoryStore();
+            case "linkedlist":
+                return new LinkedListHistoryStore();
+            case "hashmap":
+                return new HashMapHistoryStore();
+            case "array":
+                return new ArrayHistoryStore();
+            case "chunked":
+                return new ChunkedHistoryStore();
+            case "offheap":
+                return new OffHeapHistoryStore();
+            default:
+                throw new IllegalArgumentException("unknown history store: " + name);
+        }
+    }
+}
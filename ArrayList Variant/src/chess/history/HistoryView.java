@@ -0,0 +1,35 @@
+package chess.history;
+
+import chess.core.Move;
+import chess.core.Position;
+
+import java.util.function.Consumer;
+
+// Read access to a history, whether it is held in memory (MoveHistory, or the line shown of a
+// VariationTree) or left in a file (HistoryFile)
+public interface HistoryView {
+    int size();
+
+    // Rebuilds the entry into the given position
+    void positionAt(int index, Position target);
+
+    // Every entry in order. The position passed in is reused for the next entry, so it must not be kept.
+    default void forEachPosition(Consumer<Position> action) {
+        Position position = new Position();
+        for (int i = 0; i < size(); i++) {
+            positionAt(i, position);
+            action.accept(position);
+        }
+    }
+
+    // As forEachPosition, also passing the move that leads to each entry from the one before, or
+    // Move.NONE if there is none or the history does not keep moves
+    default void forEachEntry(EntryAction action) {
+        forEachPosition(position -> action.accept(Move.NONE, position));
+    }
+
+    @FunctionalInterface
+    interface EntryAction {
+        void accept(int move, Position position);
+    }
+}
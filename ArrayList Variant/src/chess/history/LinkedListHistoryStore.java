@@ -0,0 +1,41 @@
+package chess.history;
+
+import java.util.LinkedList;
+import java.util.PrimitiveIterator;
+
+// A boxed Short per entry in a LinkedList, as the LinkedList variant kept its history
+public final class LinkedListHistoryStore implements HistoryStore {
+    private final LinkedList<Short> moves = new LinkedList<>();
+
+    @Override
+    public String name() {
+        return "linkedlist";
+    }
+
+    @Override
+    public void append(int move) {
+        moves.add((short) move);
+    }
+
+    @Override
+    public void truncateAfter(int index) {
+        if (index < moves.size() - 1) {
+            moves.subList(index + 1, moves.size()).clear();
+        }
+    }
+
+    @Override
+    public int get(int index) {
+        return moves.get(index) & 0xFFFF;
+    }
+
+    @Override
+    public int size() {
+        return moves.size();
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator(int fromIndex) {
+        return ListIterators.of(moves.listIterator(fromIndex));
+    }
+}
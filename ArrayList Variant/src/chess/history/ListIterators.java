@@ -0,0 +1,24 @@
+package chess.history;
+
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+
+// Unboxing view of a List<Short> iterator, shared by the two list stores
+final class ListIterators {
+    private ListIterators() {
+    }
+
+    static PrimitiveIterator.OfInt of(Iterator<Short> moves) {
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return moves.hasNext();
+            }
+
+            @Override
+            public int nextInt() {
+                return moves.next() & 0xFFFF;
+            }
+        };
+    }
+}
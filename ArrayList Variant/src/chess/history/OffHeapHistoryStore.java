@@ -0,0 +1,82 @@
+package chess.history;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// 2 bytes per entry in direct ByteBuffers, outside the Java heap: the collector never copies or scans
+// the moves, and -Xmx does not have to make room for them (-XX:MaxDirectMemorySize bounds them
+// instead). The buffers are 64 KB chunks, so appending never copies what is stored. A truncation keeps
+// one chunk spare past the last entry and lets the rest go; their memory is returned once the collector
+// finds the buffer objects.
+// Benchmark.getSpace reports direct memory next to the heap.
+public final class OffHeapHistoryStore implements HistoryStore {
+    private static final int CHUNK_BITS = 15;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    private int size;
+
+    @Override
+    public String name() {
+        return "offheap";
+    }
+
+    @Override
+    public void append(int move) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = ByteBuffer.allocateDirect(CHUNK_SIZE * 2).order(ByteOrder.nativeOrder());
+        }
+        chunks[chunk].putShort((size & CHUNK_MASK) << 1, (short) move);
+        size++;
+    }
+
+    @Override
+    public void truncateAfter(int index) {
+        size = Math.min(size, Math.max(-1, index) + 1);
+        int kept = Math.min(chunks.length, (size >>> CHUNK_BITS) + 2);
+        Arrays.fill(chunks, kept, chunks.length, null);
+    }
+
+    @Override
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("entry " + index + " of " + size);
+        }
+        return chunks[index >>> CHUNK_BITS].getShort((index & CHUNK_MASK) << 1) & 0xFFFF;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator(int fromIndex) {
+        return new PrimitiveIterator.OfInt() {
+            private int next = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                int move = chunks[next >>> CHUNK_BITS].getShort((next & CHUNK_MASK) << 1) & 0xFFFF;
+                next++;
+                return move;
+            }
+        };
+    }
+}
@@ -0,0 +1,327 @@
+package chess.history;
+
+import chess.core.FenParser;
+import chess.core.FenWriter;
+import chess.core.Move;
+import chess.core.MoveGenerator;
+import chess.core.Position;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Histories saved as moves rather than positions: an entry that one legal move leads to from the entry
+// before is stored as that 16-bit move, varint-coded in 1 to 3 bytes against some 60 for its FEN, and
+// only the entries no move leads to (the first, so the start position heads the records, and any FEN
+// typed in) are stored as FEN text. The records can be deflated as well. Layout, numbers big-endian:
+//   "FENPACK1" | flags (1 byte; bit 0: records deflated) | entry count (4 bytes) | records
+//   a record is a varint move (never 0), or 0, a varint length and that many bytes of FEN
+// Both ways go through the FileChannel 64 KB at a time. Loading plays the moves into a VariationTree
+// with no FEN to parse; each one is checked against the legal moves first, so a damaged file is
+// reported instead of turning into impossible positions.
+public final class PackedHistory {
+    public static final String EXTENSION = ".fenz";
+
+    private static final byte[] MAGIC = {'F', 'E', 'N', 'P', 'A', 'C', 'K', '1'};
+    private static final int HEADER_SIZE = 13;
+    private static final int DEFLATED = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // A FEN record: marker, length and the FEN
+    private static final int MAX_RECORD = 2 + FenWriter.MAX_LENGTH;
+
+    private PackedHistory() {
+    }
+
+    // True if the file starts with the packed format's magic bytes
+    public static boolean isPacked(Path file) throws IOException {
+        try (FileChannel in = FileChannel.open(file)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+            in.read(header, 0);
+            return header.flip().equals(ByteBuffer.wrap(MAGIC));
+        }
+    }
+
+    public static void write(Path file, HistoryView history, boolean deflate) throws IOException {
+        write(file, history, deflate, HistoryProgress.NONE);
+    }
+
+    // A history still loading is waited for first. An entry whose move the history does not keep (one
+    // read from a file) is linked to the entry before by a legal move when one leads to it. Reports the
+    // entries written; throws CancellationException, leaving the target as it was, when progress says
+    // stop. The last report comes once the file is complete, and what it returns is ignored.
+    public static void write(Path file, HistoryView history, boolean deflate, HistoryProgress progress)
+            throws IOException {
+        HistoryFile.awaitLoaded(history);
+        HistoryFile.replace(file, out -> {
+            Packer packer = new Packer(out, deflate ? new Deflater() : null);
+            int total = history.size();
+            Position previous = new Position();
+            int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+            int[] entry = {0};
+            try {
+                packer.header(total);
+                history.forEachEntry((move, position) -> {
+                    if (move == Move.NONE && entry[0] > 0) {
+                        move = linkingMove(previous, position, legalMoves);
+                    }
+                    try {
+                        if (packer.record(move, position) && !progress.update(entry[0], total)) {
+                            throw new CancellationException("stopped after " + entry[0] + " of " + total + " entries");
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    previous.copyFrom(position);
+                    entry[0]++;
+                });
+                packer.finish();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                packer.end();
+            }
+            progress.update(entry[0], total);
+        });
+    }
+
+    public static void read(Path file, VariationTree target) throws IOException {
+        read(file, target, HistoryProgress.NONE);
+    }
+
+    // Appends every entry to the end of the tree's line shown. Reports the bytes read; throws
+    // CancellationException when progress says stop, with the entries read so far appended. The last
+    // report comes once every entry is in, and what it returns is ignored.
+    public static void read(Path file, VariationTree target, HistoryProgress progress) throws IOException {
+        try (FileChannel in = FileChannel.open(file)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (in.read(header) < 0) {
+                    throw new IOException(file + " is not a packed history");
+                }
+            }
+            header.flip();
+            if (!header.slice().limit(MAGIC.length).equals(ByteBuffer.wrap(MAGIC))) {
+                throw new IOException(file + " is not a packed history");
+            }
+            int flags = header.get(MAGIC.length);
+            int count = header.getInt(MAGIC.length + 1);
+            if (count < 0) {
+                throw new IOException("bad entry count " + count);
+            }
+
+            Unpacker unpacker = new Unpacker(in, (flags & DEFLATED) != 0 ? new Inflater() : null);
+            Position position = new Position();
+            FenParser parser = new FenParser();
+            int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+            try {
+                for (int i = 0; i < count; i++) {
+                    if (unpacker.fill() && !progress.update(in.position(), in.size())) {
+                        throw new CancellationException("stopped after " + i + " of " + count + " entries");
+                    }
+                    ByteBuffer records = unpacker.records;
+                    int move = getVarint(records);
+                    if (move != Move.NONE) {
+                        if (i == 0 || !isLegal(position, move, legalMoves)) {
+                            throw new IOException("entry " + i + ": move " + move + " cannot be played there");
+                        }
+                        position.makeMove(move);
+                        position.clearUndo();
+                        target.playMove(target.size() - 1, move);
+                    } else {
+                        int length = getVarint(records);
+                        if (length > FenWriter.MAX_LENGTH || length > records.remaining()) {
+                            throw new IOException("entry " + i + ": bad FEN length " + length);
+                        }
+                        if (!parser.tryParse(records.array(), records.position(), length, position)) {
+                            throw new IOException("entry " + i + ": " + parser.exception().getMessage());
+                        }
+                        records.position(records.position() + length);
+                        target.appendPosition(position);
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException(file + " ends before its last entry");
+            } finally {
+                unpacker.end();
+            }
+            progress.update(in.size(), in.size());
+        }
+    }
+
+    // A file may hold positions no game reaches (typed or edited by hand), which move generation is not
+    // made for; when it fails on one, the entry is kept as its FEN
+    private static int linkingMove(Position previous, Position position, int[] legalMoves) {
+        try {
+            return MoveHistory.moveBetween(previous, position, legalMoves);
+        } catch (RuntimeException e) {
+            return Move.NONE;
+        }
+    }
+
+    private static boolean isLegal(Position position, int move, int[] legalMoves) {
+        int count = MoveGenerator.generateLegal(position, legalMoves);
+        for (int i = 0; i < count; i++) {
+            if (legalMoves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void putVarint(ByteBuffer to, int value) {
+        while ((value & ~0x7F) != 0) {
+            to.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        to.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer from) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 28; shift += 7) {
+            byte b = from.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint longer than 4 bytes");
+    }
+
+    // Records are put into a heap buffer and go to the channel, deflated or not, through a direct one
+    private static final class Packer {
+        private final FileChannel out;
+        private final Deflater deflater;
+        private final ByteBuffer records = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Packer(FileChannel out, Deflater deflater) {
+            this.out = out;
+            this.deflater = deflater;
+        }
+
+        void header(int count) throws IOException {
+            output.put(MAGIC).put((byte) (deflater != null ? DEFLATED : 0)).putInt(count);
+            HistoryFile.flush(out, output);
+        }
+
+        // Returns true when the records buffer was full and has just been passed on
+        boolean record(int move, Position position) throws IOException {
+            boolean drained = false;
+            if (records.remaining() < MAX_RECORD) {
+                drain();
+                drained = true;
+            }
+            if (move != Move.NONE) {
+                putVarint(records, move);
+            } else {
+                records.put((byte) 0);
+                int lengthAt = records.position();
+                records.put((byte) 0);
+                // A FEN is shorter than 128 bytes, so its length is a one-byte varint
+                records.put(lengthAt, (byte) FenWriter.write(position, records));
+            }
+            return drained;
+        }
+
+        void finish() throws IOException {
+            drain();
+            if (deflater != null) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate();
+                }
+            }
+            HistoryFile.flush(out, output);
+        }
+
+        void end() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        private void drain() throws IOException {
+            if (deflater == null) {
+                HistoryFile.flush(out, records);
+                return;
+            }
+            deflater.setInput(records.flip());
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+            records.clear();
+        }
+
+        private void deflate() throws IOException {
+            deflater.deflate(output);
+            if (!output.hasRemaining()) {
+                HistoryFile.flush(out, output);
+            }
+        }
+    }
+
+    // Keeps at least MAX_RECORD bytes of records ready while the file has them
+    private static final class Unpacker {
+        private final FileChannel in;
+        private final Inflater inflater;
+        private final ByteBuffer input = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+        final ByteBuffer records = ByteBuffer.allocate(BUFFER_SIZE).flip();
+        private boolean inputEnded;
+
+        Unpacker(FileChannel in, Inflater inflater) {
+            this.in = in;
+            this.inflater = inflater;
+        }
+
+        // Tops up the records if they run short; returns true if it read more
+        boolean fill() throws IOException {
+            if (records.remaining() >= MAX_RECORD || inputEnded && (inflater == null || inflater.finished())) {
+                return false;
+            }
+            records.compact();
+            try {
+                while (records.hasRemaining()) {
+                    if (!input.hasRemaining() && (inflater == null || inflater.needsInput())) {
+                        input.clear();
+                        inputEnded = in.read(input) < 0;
+                        input.flip();
+                        if (inputEnded) {
+                            break;
+                        }
+                        if (inflater != null) {
+                            inflater.setInput(input);
+                        }
+                    }
+                    if (inflater == null) {
+                        int length = Math.min(input.remaining(), records.remaining());
+                        records.put(input.slice().limit(length));
+                        input.position(input.position() + length);
+                    } else if (inflater.finished()) {
+                        break;
+                    } else if (inflater.inflate(records) == 0 && inflater.needsDictionary()) {
+                        throw new IOException("deflated records need a dictionary");
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("damaged records: " + e.getMessage(), e);
+            } finally {
+                records.flip();
+            }
+            return true;
+        }
+
+        void end() {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+}
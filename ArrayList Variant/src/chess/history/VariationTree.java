@@ -0,0 +1,241 @@
+package chess.history;
+
+import chess.core.Move;
+import chess.core.Position;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Every line played from a start position, kept as a tree of moves: a node is the move that leads to it
+// plus the node it was played from, so lines that part ways share everything before the split, and
+// playing a new move after going back copies and deletes nothing. Nodes are numbered in the order they
+// are made, and a node's move and links sit at its number in parallel primitive arrays (14 bytes a
+// node), so following a path reads any node in constant time. A node no move leads to (the root, a
+// position typed in) keeps a snapshot of its position.
+//
+// As a HistoryView the tree is the line shown: entry i is the node i plies from the root on the path to
+// the line's tip. A line always runs on to a leaf through each node's first child, and a child that is
+// played moves to the front, so going back and forward again follows the latest continuation. The moves
+// of the line shown are also kept in a MoveHistory over the HistoryStore given, which rebuilds its
+// positions and is cut back and extended like a single game whenever the line changes. A tree belongs
+// to one thread at a time.
+public final class VariationTree implements HistoryView {
+    private static final int NO_NODE = -1;
+
+    // Per node
+    private short[] moves = new short[64];
+    private int[] parents = new int[64];
+    private int[] firstChildren = new int[64];
+    private int[] nextSiblings = new int[64];
+    private int nodeCount;
+
+    // Nodes no move leads to, in the order they were made, which is node order, and their snapshots
+    private int[] segmentNodes = new int[4];
+    private long[] segments = new long[4 * Position.SNAPSHOT_LONGS];
+    private int segmentCount;
+
+    // The line shown, root first, as nodes and as a history of moves
+    private int[] line = new int[64];
+    private int lineLength;
+    private final MoveHistory shown;
+
+    private final Position scratch = new Position();
+
+    public VariationTree() {
+        this(new ArrayHistoryStore(), MoveHistory.DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    // Anything already in the store is dropped
+    public VariationTree(HistoryStore store, int keyframeInterval) {
+        shown = new MoveHistory(store, keyframeInterval);
+    }
+
+    // The moves of the line shown
+    public HistoryStore store() {
+        return shown.store();
+    }
+
+    public int keyframeInterval() {
+        return shown.keyframeInterval();
+    }
+
+    // Entries in the line shown
+    @Override
+    public int size() {
+        return lineLength;
+    }
+
+    public boolean isEmpty() {
+        return lineLength == 0;
+    }
+
+    // Positions in every line together
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    // Plays a legal move from the given entry of the line shown. The line then runs through the move,
+    // and on through whatever was played after it before if it was played here before; the line it
+    // leaves stays in the tree.
+    public void playMove(int index, int move) {
+        checkIndex(index);
+        int from = line[index];
+        int node = firstChildren[from];
+        while (node != NO_NODE && moveOf(node) != move) {
+            node = nextSiblings[node];
+        }
+        if (node == NO_NODE) {
+            node = addNode(from, move);
+        } else {
+            moveToFront(node);
+        }
+        showFrom(index + 1, node);
+    }
+
+    // Adds a position after the end of the line shown, which is always a leaf; it is stored as a move
+    // when one legal move leads to it
+    public void appendPosition(Position position) {
+        int move = shown.appendPosition(position);
+        int node = addNode(lineLength > 0 ? line[lineLength - 1] : NO_NODE, move);
+        if (move == Move.NONE) {
+            addSegment(node, position);
+        }
+        addToLine(node);
+    }
+
+    // The move that leads to the entry, or Move.NONE if the entry starts a segment
+    public int moveAt(int index) {
+        checkIndex(index);
+        return moveOf(line[index]);
+    }
+
+    // The moves that were played to reach the entry, as alternatives to each other; 1 for the root
+    public int variationCount(int index) {
+        checkIndex(index);
+        if (index == 0) {
+            return 1;
+        }
+        int count = 0;
+        for (int node = firstChildren[line[index - 1]]; node != NO_NODE; node = nextSiblings[node]) {
+            count++;
+        }
+        return count;
+    }
+
+    // Shows the next of the entry's alternatives (wrapping round) in its place, with the line running
+    // on from it
+    public void nextVariation(int index) {
+        checkIndex(index);
+        if (index == 0) {
+            return;
+        }
+        int node = nextSiblings[line[index]];
+        if (node == NO_NODE) {
+            node = firstChildren[line[index - 1]];
+        }
+        showFrom(index, node);
+    }
+
+    // The replayed moves stay on the target's undo stack
+    @Override
+    public void positionAt(int index, Position target) {
+        checkIndex(index);
+        shown.positionAt(index, target);
+    }
+
+    @Override
+    public void forEachPosition(Consumer<Position> action) {
+        shown.forEachPosition(action);
+    }
+
+    @Override
+    public void forEachEntry(EntryAction action) {
+        shown.forEachEntry(action);
+    }
+
+    // A new first child of parent (or the root)
+    private int addNode(int parent, int move) {
+        if (nodeCount == parents.length) {
+            int capacity = nodeCount * 2;
+            moves = Arrays.copyOf(moves, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        }
+        int node = nodeCount++;
+        moves[node] = (short) move;
+        parents[node] = parent;
+        firstChildren[node] = NO_NODE;
+        if (parent == NO_NODE) {
+            nextSiblings[node] = NO_NODE;
+        } else {
+            nextSiblings[node] = firstChildren[parent];
+            firstChildren[parent] = node;
+        }
+        return node;
+    }
+
+    private int moveOf(int node) {
+        return moves[node] & 0xFFFF;
+    }
+
+    private void moveToFront(int node) {
+        int parent = parents[node];
+        if (firstChildren[parent] == node) {
+            return;
+        }
+        int before = firstChildren[parent];
+        while (nextSiblings[before] != node) {
+            before = nextSiblings[before];
+        }
+        nextSiblings[before] = nextSiblings[node];
+        nextSiblings[node] = firstChildren[parent];
+        firstChildren[parent] = node;
+    }
+
+    // Cuts the line shown back to its first index entries, then runs it on through the node and its
+    // first children to a leaf
+    private void showFrom(int index, int node) {
+        lineLength = index;
+        shown.truncateAfter(index - 1);
+        for (; node != NO_NODE; node = firstChildren[node]) {
+            int move = moveOf(node);
+            if (move != Move.NONE) {
+                shown.appendMove(move);
+            } else {
+                // No move led here from this parent when the node was made, so the history stores it
+                // as a position again
+                scratch.readSnapshot(segments, segmentOf(node) * Position.SNAPSHOT_LONGS);
+                shown.appendPosition(scratch);
+            }
+            addToLine(node);
+        }
+    }
+
+    private void addToLine(int node) {
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, lineLength * 2);
+        }
+        line[lineLength++] = node;
+    }
+
+    private void addSegment(int node, Position position) {
+        if (segmentCount == segmentNodes.length) {
+            segmentNodes = Arrays.copyOf(segmentNodes, segmentCount * 2);
+            segments = Arrays.copyOf(segments, segmentCount * 2 * Position.SNAPSHOT_LONGS);
+        }
+        segmentNodes[segmentCount] = node;
+        position.writeSnapshot(segments, segmentCount * Position.SNAPSHOT_LONGS);
+        segmentCount++;
+    }
+
+    private int segmentOf(int node) {
+        return Arrays.binarySearch(segmentNodes, 0, segmentCount, node);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= lineLength) {
+            throw new IndexOutOfBoundsException("entry " + index + " of " + lineLength);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package chess.utils;
+
+import chess.backend.BitboardBackend;
+import chess.backend.BoardBackend;
+import chess.backend.Mailbox0x88Backend;
+import chess.backend.Mailbox10x12Backend;
+import chess.backend.ObjectArrayBackend;
+import chess.core.Position;
+
+// Head-to-head comparison of the board backends in chess.backend:
+//   backends [rounds]
+// Each backend first has to reproduce the reference perft counts and FENs; that pass also warms the
+// JIT up. Then it runs perft and FEN round-trips (setFen + toFen) for the given number of rounds and
+// reports nodes/sec and round-trips/sec, plus the bytes the benchmark thread allocated per node and
+// per round-trip.
+public class BackendBenchmark {
+
+    // FEN, depth, expected nodes (chessprogramming.org "Perft Results", shallower than the suite)
+    private static final Object[][] POSITIONS = {
+            {Position.START_FEN, 4, 197281L},
+            {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 3, 97862L},
+            {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5, 674624L},
+            {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 4, 422333L},
+            {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3, 62379L},
+            {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 3, 89890L},
+    };
+
+    // FEN round-trips per position per round
+    private static final int ROUND_TRIPS = 20000;
+
+    public static boolean isCommand(String name) {
+        return name.equals("backends");
+    }
+
+    public static BoardBackend[] backends() {
+        return new BoardBackend[]{
+                new ObjectArrayBackend(), new Mailbox0x88Backend(), new Mailbox10x12Backend(), new BitboardBackend()
+        };
+    }
+
+    // Returns a process exit code: 0 on success, 1 if a backend got a count or FEN wrong, 2 on bad usage
+    public static int run(String[] args) {
+        int rounds;
+        try {
+            rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        } catch (NumberFormatException e) {
+            rounds = 0;
+        }
+        if (rounds < 1) {
+            System.err.println("Usage: backends [rounds]");
+            return 2;
+        }
+
+        System.out.printf("%-18s %16s %12s %16s %12s%n", "backend", "perft nodes/sec", "bytes/node", "FEN trips/sec", "bytes/trip");
+        int failures = 0;
+        for (BoardBackend backend : backends()) {
+            String problem = verify(backend);
+            if (problem != null) {
+                failures++;
+                System.out.printf("%-18s FAIL: %s%n", backend.name(), problem);
+                continue;
+            }
+
+            long nodes = 0;
+            long allocated = Benchmark.getAllocatedBytes();
+            long startTime = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (Object[] position : POSITIONS) {
+                    backend.setFen((String) position[0]);
+                    nodes += backend.perft((Integer) position[1]);
+                }
+            }
+            long perftTime = System.nanoTime() - startTime;
+            long perftBytes = Benchmark.getAllocatedBytes() - allocated;
+
+            long trips = 0;
+            long length = 0;
+            allocated = Benchmark.getAllocatedBytes();
+            startTime = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (Object[] position : POSITIONS) {
+                    for (int i = 0; i < ROUND_TRIPS; i++) {
+                        backend.setFen((String) position[0]);
+                        length += backend.toFen().length();
+                        trips++;
+                    }
+                }
+            }
+            long fenTime = System.nanoTime() - startTime;
+            long fenBytes = Benchmark.getAllocatedBytes() - allocated;
+
+            System.out.printf("%-18s %,16.0f %12.2f %,16.0f %12.1f%n", backend.name(),
+                    nodes * 1e9 / Math.max(1, perftTime), (double) perftBytes / nodes,
+                    trips * 1e9 / Math.max(1, fenTime), (double) fenBytes / trips);
+            if (length == 0) {
+                System.out.println(); // keeps the FEN strings observably used
+            }
+        }
+
+        System.out.println();
+        Benchmark.getSpace();
+        return failures == 0 ? 0 : 1;
+    }
+
+    // Null if the backend reproduces every count and FEN, otherwise what went wrong
+    private static String verify(BoardBackend backend) {
+        for (Object[] position : POSITIONS) {
+            String fen = (String) position[0];
+            backend.setFen(fen);
+            if (!backend.toFen().equals(fen)) {
+                return "wrote " + backend.toFen() + " for " + fen;
+            }
+            long nodes = backend.perft((Integer) position[1]);
+            if (nodes != (Long) position[2]) {
+                return "perft(" + position[1] + ") = " + nodes + ", expected " + position[2] + " for " + fen;
+            }
+        }
+        return null;
+    }
+}
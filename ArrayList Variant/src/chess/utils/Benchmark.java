@@ -24,6 +24,31 @@ public class Benchmark {
         //print the result
         String str = String.format("%,d", used_mem);
         System.out.println("Amount of used memory: " + str);
+
+        //direct and mapped buffers (off-heap history stores, mapped history files) are outside the heap
+        for (java.lang.management.BufferPoolMXBean pool
+                : java.lang.management.ManagementFactory.getPlatformMXBeans(java.lang.management.BufferPoolMXBean.class)) {
+            if (pool.getCount() > 0) {
+                System.out.println(String.format("Amount of %s buffer memory: %,d in %,d buffers",
+                        pool.getName(), pool.getMemoryUsed(), pool.getCount()));
+            }
+        }
+    }
+
+    public static void getThroughput(long nodes, long startTime, long endTime) {
+        //nodes per second over the measured interval
+        double seconds = Math.max(1, endTime - startTime) / 1e9;
+        String str = String.format("%,d nodes in %,.1f milliseconds (%,.0f nodes/sec)",
+                nodes, seconds * 1000, nodes / seconds);
+        System.out.println(str);
     }
-}
 
+    public static long getAllocatedBytes() {
+        //bytes allocated so far by the calling thread, or -1 if the JVM does not count them
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,227 @@
+package chess.utils;
+
+import chess.core.Move;
+import chess.core.MoveGenerator;
+import chess.core.ParallelPerft;
+import chess.core.Perft;
+import chess.core.PerftTable;
+import chess.core.Position;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Headless perft commands:
+//   perft <depth> [fen]    count leaf nodes and report nodes per second
+//   divide <depth> [fen]   node count per root move, for diffing against another engine
+//   parallel <depth> [fen] fork/join perft on 1..N cores, checked against the single-threaded count
+//   suite                  run the reference positions and check every count
+// perft, parallel and suite accept "--hash <MB>" to cache subtree counts in a shared PerftTable.
+public class PerftRunner {
+
+    // Reference positions with known node counts (chessprogramming.org "Perft Results" and
+    // Martin Sedlak's edge-case collection). Each row is name, FEN, depth, expected nodes.
+    private static final Object[][] SUITE = {
+            {"Start position", Position.START_FEN, 5, 4865609L},
+            {"Kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 4, 4085603L},
+            {"Position 3 (en passant, pins)", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 6, 11030083L},
+            {"Position 4 (promotions)", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 5, 15833292L},
+            {"Position 4 mirrored", "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1", 5, 15833292L},
+            {"Position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2103487L},
+            {"Position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3894594L},
+            {"Illegal en passant capture", "8/5bk1/8/2Pp4/8/1K6/8/8 w - d6 0 1", 6, 824064L},
+            {"En passant capture gives check", "8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1", 6, 1440467L},
+            {"Short castling gives check", "5k2/8/8/8/8/8/8/4K2R w K - 0 1", 6, 661072L},
+            {"Long castling gives check", "3k4/8/8/8/8/8/8/R3K3 w Q - 0 1", 6, 803711L},
+            {"Castling rights lost to captures", "r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1", 4, 1274206L},
+            {"Castling prevented", "r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1", 4, 1720476L},
+            {"Promote out of check", "2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1", 6, 3821001L},
+            {"Discovered check", "8/8/1P2K3/8/2n5/1q6/8/5k2 b - - 0 1", 5, 1004658L},
+            {"Promote to give check", "4k3/1P6/8/8/8/8/K7/8 w - - 0 1", 6, 217342L},
+            {"Underpromote to give check", "8/P1k5/K7/8/8/8/8/8 w - - 0 1", 6, 92683L},
+            {"Self stalemate", "K1k5/8/P7/8/8/8/8/8 w - - 0 1", 6, 2217L},
+            {"Stalemate and checkmate", "8/k1P5/8/1K6/8/8/8/8 w - - 0 1", 7, 567584L},
+            {"Stalemate and checkmate 2", "8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1", 4, 23527L},
+    };
+
+    public static boolean isCommand(String name) {
+        return name.equals("perft") || name.equals("divide") || name.equals("parallel") || name.equals("suite");
+    }
+
+    // Returns a process exit code: 0 on success, 1 on a failed check, 2 on bad usage
+    public static int run(String[] args) {
+        try {
+            int hashMegabytes = hashOption(args);
+            if (hashMegabytes > 0) {
+                args = withoutHashOption(args);
+            }
+
+            switch (args[0]) {
+                case "perft":
+                    return perft(args, hashMegabytes);
+                case "divide":
+                    return divide(args);
+                case "parallel":
+                    return parallel(args, hashMegabytes);
+                case "suite":
+                    return suite(hashMegabytes);
+                default:
+                    return usage();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return usage();
+        }
+    }
+
+    private static int perft(String[] args, int hashMegabytes) {
+        int depth = depthArgument(args);
+        Position position = new Position(fenArgument(args));
+
+        long startTime = System.nanoTime();
+        long nodes = new Perft(position, depth, newTable(hashMegabytes)).perft(depth);
+        long endTime = System.nanoTime();
+
+        System.out.println("perft(" + depth + ") = " + nodes);
+        Benchmark.getThroughput(nodes, startTime, endTime);
+        return 0;
+    }
+
+    private static int divide(String[] args) {
+        int depth = depthArgument(args);
+        if (depth < 1) {
+            throw new IllegalArgumentException("divide needs a depth of at least 1");
+        }
+        Position position = new Position(fenArgument(args));
+        int[] rootMoves = new int[MoveGenerator.MAX_MOVES];
+        long[] counts = new long[MoveGenerator.MAX_MOVES];
+
+        long startTime = System.nanoTime();
+        int count = new Perft(position, depth).divide(depth, rootMoves, counts);
+        long endTime = System.nanoTime();
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            System.out.println(Move.toUci(rootMoves[i]) + ": " + counts[i]);
+            nodes += counts[i];
+        }
+        System.out.println();
+        System.out.println("Moves: " + count);
+        System.out.println("Nodes searched: " + nodes);
+        Benchmark.getThroughput(nodes, startTime, endTime);
+        return 0;
+    }
+
+    // Root moves and the replies to them are split into tasks; deeper plies run single-threaded
+    private static final int SPLIT_DEPTH = 2;
+
+    private static int parallel(String[] args, int hashMegabytes) {
+        int depth = depthArgument(args);
+        Position position = new Position(fenArgument(args));
+
+        // Every run gets a fresh table so later runs don't just read the earlier runs' results
+        long startTime = System.nanoTime();
+        long expected = new Perft(new Position(position), depth, newTable(hashMegabytes)).perft(depth);
+        long baseline = System.nanoTime() - startTime;
+        System.out.printf("single-threaded perft(%d) = %,d in %,.1f ms%n%n", depth, expected, baseline / 1e6);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        boolean allMatch = true;
+        for (int threads = 1; threads <= cores; threads = threads < cores && threads * 2 > cores ? cores : threads * 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                startTime = System.nanoTime();
+                long nodes = new ParallelPerft(pool, SPLIT_DEPTH, newTable(hashMegabytes)).perft(position, depth);
+                long elapsed = System.nanoTime() - startTime;
+
+                boolean ok = nodes == expected;
+                allMatch &= ok;
+                System.out.printf("%2d threads  %,14d  %s  %,8.1f ms  %,14.0f nodes/sec  speedup %.2fx%n",
+                        threads, nodes, ok ? "OK  " : "FAIL", elapsed / 1e6,
+                        nodes * 1e9 / Math.max(1, elapsed), (double) baseline / Math.max(1, elapsed));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return allMatch ? 0 : 1;
+    }
+
+    private static int suite(int hashMegabytes) {
+        PerftTable table = newTable(hashMegabytes);
+        int failures = 0;
+        long totalNodes = 0;
+        long totalTime = 0;
+
+        for (Object[] entry : SUITE) {
+            String name = (String) entry[0];
+            int depth = (Integer) entry[2];
+            long expected = (Long) entry[3];
+            Position position = new Position((String) entry[1]);
+
+            long startTime = System.nanoTime();
+            long nodes = new Perft(position, depth, table).perft(depth);
+            long endTime = System.nanoTime();
+
+            boolean ok = nodes == expected;
+            if (!ok) failures++;
+            totalNodes += nodes;
+            totalTime += endTime - startTime;
+
+            System.out.printf("%-34s depth %d  %,14d  %s  %,8.1f ms  %,14.0f nodes/sec%n",
+                    name, depth, nodes, ok ? "OK  " : "FAIL (expected " + expected + ")",
+                    (endTime - startTime) / 1e6, nodes * 1e9 / Math.max(1, endTime - startTime));
+        }
+
+        System.out.println();
+        System.out.println((SUITE.length - failures) + "/" + SUITE.length + " positions correct");
+        Benchmark.getThroughput(totalNodes, 0, totalTime);
+        return failures == 0 ? 0 : 1;
+    }
+
+    private static PerftTable newTable(int megabytes) {
+        return megabytes > 0 ? new PerftTable(megabytes) : null;
+    }
+
+    private static int hashOption(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--hash")) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("--hash needs a size in MB");
+                }
+                int megabytes = Integer.parseInt(args[i + 1]);
+                if (megabytes < 1) {
+                    throw new IllegalArgumentException("--hash needs a size of at least 1 MB");
+                }
+                return megabytes;
+            }
+        }
+        return 0;
+    }
+
+    private static String[] withoutHashOption(String[] args) {
+        java.util.List<String> rest = new java.util.ArrayList<>(java.util.Arrays.asList(args));
+        int i = rest.indexOf("--hash");
+        rest.subList(i, i + 2).clear();
+        return rest.toArray(new String[0]);
+    }
+
+    // NumberFormatException, like every other bad argument, is an IllegalArgumentException
+    private static int depthArgument(String[] args) {
+        if (args.length < 2) {
+            throw new IllegalArgumentException(args[0] + " needs a depth");
+        }
+        return Integer.parseInt(args[1]);
+    }
+
+    private static String fenArgument(String[] args) {
+        if (args.length <= 2) {
+            return Position.START_FEN;
+        }
+        // The FEN may arrive as one quoted argument or split on its spaces
+        return String.join(" ", java.util.Arrays.copyOfRange(args, 2, args.length));
+    }
+
+    private static int usage() {
+        System.err.println("Usage: perft <depth> [fen] | divide <depth> [fen] | parallel <depth> [fen] | suite");
+        System.err.println("       perft, parallel and suite take --hash <MB> to cache transpositions");
+        return 2;
+    }
+}
@@ -0,0 +1,107 @@
+package chess.history;
+
+import chess.core.Move;
+import chess.core.MoveGenerator;
+import chess.core.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Plays a long game into a VariationTree over the linkedlist store, branching off it along the way, and
+// checks the tree against the same game replayed move by move on a plain Position: after every side
+// line, variationCount and nextVariation must bring the main line back; at the end moveAt, forEachEntry
+// and positionAt must give every move and position of the game, and the side lines must still be nodes.
+//   java -cp out chess.history.VariationTreeTest [plies]
+// Exits with 1 on the first mismatch.
+public class VariationTreeTest {
+    public static void main(String[] args) {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        SplittableRandom random = new SplittableRandom(42);
+        VariationTree tree = new VariationTree(HistoryStore.create("linkedlist"), 16);
+
+        // The game as played: the move to each entry (Move.NONE for a restart) and its FEN
+        List<Integer> moves = new ArrayList<>();
+        List<String> fens = new ArrayList<>();
+        Position start = new Position(Position.START_FEN);
+        Position position = new Position(Position.START_FEN);
+        tree.appendPosition(position);
+        moves.add(Move.NONE);
+        fens.add(position.toFen());
+        int sideLines = 0;
+        int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+        while (tree.size() < plies) {
+            int count = MoveGenerator.generateLegal(position, legalMoves);
+            if (count == 0 || position.halfmoveClock() >= 100) {
+                position.copyFrom(start);
+                tree.appendPosition(position);
+                moves.add(Move.NONE);
+                fens.add(position.toFen());
+                continue;
+            }
+            // Now and then a side line from the entry before, then back to the main line
+            int last = tree.size() - 1;
+            if (last > 0 && moves.get(last) != Move.NONE && random.nextInt(16) == 0) {
+                Position before = new Position();
+                tree.positionAt(last - 1, before);
+                before.clearUndo();
+                int alternatives = MoveGenerator.generateLegal(before, legalMoves);
+                for (int i = 0; i < alternatives; i++) {
+                    if (legalMoves[i] != moves.get(last)) {
+                        int variations = tree.variationCount(last);
+                        tree.playMove(last - 1, legalMoves[i]);
+                        before.makeMove(legalMoves[i]);
+                        check(tree.size() == last + 1 && tree.moveAt(last) == legalMoves[i], "side line at " + last);
+                        check(fenAt(tree, last).equals(before.toFen()), "side line position at " + last);
+                        check(tree.variationCount(last) == variations + 1, "variationCount(" + last + ")");
+                        tree.nextVariation(last);
+                        check(tree.size() == last + 1 && tree.moveAt(last) == moves.get(last), "back to main line at " + last);
+                        sideLines++;
+                        break;
+                    }
+                }
+                count = MoveGenerator.generateLegal(position, legalMoves);
+            }
+            int move = legalMoves[random.nextInt(count)];
+            position.makeMove(move);
+            position.clearUndo();
+            tree.playMove(tree.size() - 1, move);
+            moves.add(move);
+            fens.add(position.toFen());
+        }
+
+        check(tree.size() == moves.size(), "size " + tree.size() + " instead of " + moves.size());
+        check(tree.nodeCount() == moves.size() + sideLines, "nodeCount " + tree.nodeCount());
+        check(tree.store().size() == moves.size(), "store size " + tree.store().size());
+        for (int i = 0; i < tree.size(); i++) {
+            check(tree.moveAt(i) == moves.get(i), "moveAt(" + i + ")");
+        }
+
+        int[] entry = {0};
+        tree.forEachEntry((move, p) -> {
+            check(move == moves.get(entry[0]), "forEachEntry move " + entry[0]);
+            check(p.toFen().equals(fens.get(entry[0])), "forEachEntry position " + entry[0]);
+            entry[0]++;
+        });
+        check(entry[0] == tree.size(), "forEachEntry gave " + entry[0] + " entries");
+
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(tree.size());
+            check(fenAt(tree, index).equals(fens.get(index)), "positionAt(" + index + ")");
+        }
+        System.out.printf("%,d plies, %,d side lines; ok%n", tree.size(), sideLines);
+    }
+
+    private static String fenAt(VariationTree tree, int index) {
+        Position position = new Position();
+        tree.positionAt(index, position);
+        return position.toFen();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            System.out.println("FAIL: " + what);
+            System.exit(1);
+        }
+    }
+}
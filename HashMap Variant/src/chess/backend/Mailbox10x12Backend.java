@@ -0,0 +1,318 @@
+package chess.backend;
+
+import chess.core.Move;
+import chess.core.Position;
+
+import static chess.core.Pieces.*;
+
+// 10x12 mailbox: the board sits inside a 120-entry array with a border of OFF_BOARD sentinels, two
+// rows deep above and below so a knight step can never leave the array. A step has left the board
+// when it lands on a sentinel. Legality and castling are checked the same way as in Mailbox0x88Backend.
+public final class Mailbox10x12Backend extends MailboxBackend {
+    private static final int OFF_BOARD = -2;
+
+    private static final int[] KNIGHT_STEPS = {21, 19, 12, 8, -8, -12, -19, -21};
+    private static final int[] KING_STEPS = {11, 10, 9, 1, -1, -9, -10, -11};
+    private static final int[] DIAGONAL_STEPS = {11, 9, -9, -11};
+    private static final int[] STRAIGHT_STEPS = {10, 1, -1, -10};
+
+    // Array index of each chess.core square, and the reverse (-1 on the border)
+    private static final int[] INDEX = new int[64];
+    private static final int[] SQUARE = new int[120];
+
+    static {
+        java.util.Arrays.fill(SQUARE, -1);
+        for (int sq = 0; sq < 64; sq++) {
+            INDEX[sq] = 21 + (sq >> 3) * 10 + (sq & 7);
+            SQUARE[INDEX[sq]] = sq;
+        }
+    }
+
+    private final int[] board = new int[120];
+    private final int[] kings = {-1, -1};
+
+    public Mailbox10x12Backend() {
+        setFen(Position.START_FEN);
+    }
+
+    private static int index(int square) {
+        return INDEX[square];
+    }
+
+    private static int square(int index) {
+        return SQUARE[index];
+    }
+
+    @Override
+    public String name() {
+        return "10x12 mailbox";
+    }
+
+    @Override
+    public int pieceAt(int square) {
+        return board[index(square)];
+    }
+
+    @Override
+    void clearBoard() {
+        java.util.Arrays.fill(board, OFF_BOARD);
+        for (int sq = 0; sq < 64; sq++) {
+            board[INDEX[sq]] = EMPTY;
+        }
+        kings[WHITE] = kings[BLACK] = -1;
+    }
+
+    @Override
+    void setPiece(int square, int piece) {
+        board[index(square)] = piece;
+        if (kind(piece) == KING) {
+            kings[color(piece)] = index(square);
+        }
+    }
+
+    @Override
+    public int generateLegal(int[] moves) {
+        int us = sideToMove;
+        int count = generatePseudoLegal(moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(moves[i]);
+            if (kings[us] < 0 || !isAttacked(kings[us], us ^ 1)) {
+                moves[legal++] = moves[i];
+            }
+            unmakeMove();
+        }
+        return legal;
+    }
+
+    private int generatePseudoLegal(int[] moves) {
+        int us = sideToMove;
+        int count = 0;
+        for (int from = 21; from < 99; from++) {
+            int piece = board[from];
+            if (piece < 0 || color(piece) != us) {
+                continue;
+            }
+            switch (kind(piece)) {
+                case PAWN:
+                    count = addPawnMoves(moves, count, from, us);
+                    break;
+                case KNIGHT:
+                    count = addSteps(moves, count, from, KNIGHT_STEPS, us);
+                    break;
+                case BISHOP:
+                    count = addSlides(moves, count, from, DIAGONAL_STEPS, us);
+                    break;
+                case ROOK:
+                    count = addSlides(moves, count, from, STRAIGHT_STEPS, us);
+                    break;
+                case QUEEN:
+                    count = addSlides(moves, count, from, DIAGONAL_STEPS, us);
+                    count = addSlides(moves, count, from, STRAIGHT_STEPS, us);
+                    break;
+                default:
+                    count = addSteps(moves, count, from, KING_STEPS, us);
+                    count = addCastling(moves, count, from, us);
+                    break;
+            }
+        }
+        return count;
+    }
+
+    private int addPawnMoves(int[] moves, int count, int from, int us) {
+        int forward = us == WHITE ? 10 : -10;
+        int promotionRank = us == WHITE ? 7 : 0;
+        int one = from + forward;
+        if (board[one] == EMPTY) {
+            count = addPawnMove(moves, count, from, one, Move.QUIET, promotionRank);
+            int two = one + forward;
+            if ((square(from) >> 3) == (us == WHITE ? 1 : 6) && board[two] == EMPTY) {
+                moves[count++] = Move.of(square(from), square(two), Move.DOUBLE_PUSH);
+            }
+        }
+        for (int side = -1; side <= 1; side += 2) {
+            int to = one + side;
+            int target = board[to];
+            if (target >= 0 && color(target) != us) {
+                count = addPawnMove(moves, count, from, to, Move.CAPTURE, promotionRank);
+            } else if (target == EMPTY && square(to) == enPassantSquare) {
+                moves[count++] = Move.of(square(from), square(to), Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int[] moves, int count, int from, int to, int flags, int promotionRank) {
+        if ((square(to) >> 3) != promotionRank) {
+            moves[count++] = Move.of(square(from), square(to), flags);
+            return count;
+        }
+        for (int promotion = 0; promotion < 4; promotion++) {
+            moves[count++] = Move.of(square(from), square(to), flags | Move.PROMOTION | promotion);
+        }
+        return count;
+    }
+
+    private int addSteps(int[] moves, int count, int from, int[] steps, int us) {
+        for (int step : steps) {
+            int to = from + step;
+            int target = board[to];
+            if (target == EMPTY) {
+                moves[count++] = Move.of(square(from), square(to), Move.QUIET);
+            } else if (target != OFF_BOARD && color(target) != us) {
+                moves[count++] = Move.of(square(from), square(to), Move.CAPTURE);
+            }
+        }
+        return count;
+    }
+
+    private int addSlides(int[] moves, int count, int from, int[] steps, int us) {
+        for (int step : steps) {
+            for (int to = from + step; ; to += step) {
+                int target = board[to];
+                if (target == EMPTY) {
+                    moves[count++] = Move.of(square(from), square(to), Move.QUIET);
+                    continue;
+                }
+                if (target != OFF_BOARD && color(target) != us) {
+                    moves[count++] = Move.of(square(from), square(to), Move.CAPTURE);
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int addCastling(int[] moves, int count, int from, int us) {
+        int home = us == WHITE ? 25 : 95;
+        if (from != home || castlingRights == 0) {
+            return count;
+        }
+        int rook = make(us, ROOK);
+        int them = us ^ 1;
+        int kingside = us == WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = us == WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        if ((castlingRights & kingside) != 0 && board[home + 3] == rook
+                && board[home + 1] == EMPTY && board[home + 2] == EMPTY
+                && !isAttacked(home, them) && !isAttacked(home + 1, them)) {
+            moves[count++] = Move.of(square(home), square(home + 2), Move.KING_CASTLE);
+        }
+        if ((castlingRights & queenside) != 0 && board[home - 4] == rook
+                && board[home - 1] == EMPTY && board[home - 2] == EMPTY && board[home - 3] == EMPTY
+                && !isAttacked(home, them) && !isAttacked(home - 1, them)) {
+            moves[count++] = Move.of(square(home), square(home - 2), Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+
+    private boolean isAttacked(int target, int byColor) {
+        int pawnStep = byColor == WHITE ? -10 : 10;
+        int pawn = make(byColor, PAWN);
+        for (int side = -1; side <= 1; side += 2) {
+            if (board[target + pawnStep + side] == pawn) {
+                return true;
+            }
+        }
+        if (isSteppedOn(target, KNIGHT_STEPS, make(byColor, KNIGHT))
+                || isSteppedOn(target, KING_STEPS, make(byColor, KING))) {
+            return true;
+        }
+        int queen = make(byColor, QUEEN);
+        return isSlidOn(target, DIAGONAL_STEPS, make(byColor, BISHOP), queen)
+                || isSlidOn(target, STRAIGHT_STEPS, make(byColor, ROOK), queen);
+    }
+
+    private boolean isSteppedOn(int target, int[] steps, int piece) {
+        for (int step : steps) {
+            if (board[target + step] == piece) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSlidOn(int target, int[] steps, int slider, int queen) {
+        for (int step : steps) {
+            for (int from = target + step; ; from += step) {
+                int piece = board[from];
+                if (piece != EMPTY) {
+                    if (piece == slider || piece == queen) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void makeMove(int move) {
+        int from = index(Move.from(move));
+        int to = index(Move.to(move));
+        int flags = Move.flags(move);
+        int piece = board[from];
+        int victim = flags == Move.EN_PASSANT ? index(Move.to(move) ^ 8) : to;
+        int captured = board[victim];
+        int us = sideToMove;
+        beginMove(move, piece, captured);
+
+        board[victim] = EMPTY;
+        board[from] = EMPTY;
+        board[to] = Move.isPromotion(move) ? make(us, Move.promotionKind(move)) : piece;
+        if (kind(piece) == KING) {
+            kings[us] = to;
+            if (flags == Move.KING_CASTLE) {
+                board[from + 1] = board[from + 3];
+                board[from + 3] = EMPTY;
+            } else if (flags == Move.QUEEN_CASTLE) {
+                board[from - 1] = board[from - 4];
+                board[from - 4] = EMPTY;
+            }
+        }
+    }
+
+    @Override
+    public void unmakeMove() {
+        long undo = endUnmake();
+        int move = undoMove(undo);
+        int from = index(Move.from(move));
+        int to = index(Move.to(move));
+        int flags = Move.flags(move);
+        int us = sideToMove;
+        int piece = Move.isPromotion(move) ? make(us, PAWN) : board[to];
+
+        board[to] = EMPTY;
+        board[flags == Move.EN_PASSANT ? index(Move.to(move) ^ 8) : to] = undoCaptured(undo);
+        board[from] = piece;
+        if (kind(piece) == KING) {
+            kings[us] = from;
+            if (flags == Move.KING_CASTLE) {
+                board[from + 3] = board[from + 1];
+                board[from + 1] = EMPTY;
+            } else if (flags == Move.QUEEN_CASTLE) {
+                board[from - 4] = board[from - 1];
+                board[from - 1] = EMPTY;
+            }
+        }
+    }
+
+    @Override
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] buffer = moves.ply(depth - 1);
+        int count = generateLegal(buffer);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(buffer[i]);
+            nodes += perft(depth - 1);
+            unmakeMove();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,38 @@
+package chess.cli;
+
+// Finds the line breaks between records in a block of FEN text. Offsets are written into a caller's
+// int[] so scanning a block allocates nothing. A scan stops early when the offset array is full; the
+// caller continues from the byte after the last offset it got. Fields within a record are left to
+// FenParser, which classifies every byte anyway.
+//
+// The scalar implementation is always there. A SIMD one built on jdk.incubator.vector lives in the
+// separate "vector" source root (see README) and is used when it was compiled and the JVM was started
+// with --add-modules jdk.incubator.vector; -Dchess.vector=false turns it off again.
+public interface FenTokenizer {
+    String name();
+
+    // Offsets of the '\n' bytes in data[from, to); returns how many were written
+    int lineEnds(byte[] data, int from, int to, int[] ends);
+
+    static FenTokenizer scalar() {
+        return new ScalarFenTokenizer();
+    }
+
+    // The Vector API tokenizer, or null if it is not compiled in or the module is not loaded
+    static FenTokenizer vector() {
+        if (!Boolean.parseBoolean(System.getProperty("chess.vector", "true"))
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (FenTokenizer) Class.forName("chess.cli.VectorFenTokenizer").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    static FenTokenizer best() {
+        FenTokenizer vector = vector();
+        return vector != null ? vector : scalar();
+    }
+}
@@ -0,0 +1,21 @@
+package chess.cli;
+
+// One byte at a time; the fallback when the Vector API is not available
+final class ScalarFenTokenizer implements FenTokenizer {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public int lineEnds(byte[] data, int from, int to, int[] ends) {
+        int count = 0;
+        for (int i = from; i < to && count < ends.length; i++) {
+            if (data[i] == '\n') {
+                ends[count++] = i;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,196 @@
+package chess.core;
+
+// Precomputed attack sets. Knight, king and pawn attacks are plain per-square tables; rook and bishop
+// attacks use magic bitboards: the blockers on a square's rays are multiplied by a magic number and the
+// top bits index a table holding every possible attack set for that square.
+public final class Attacks {
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    // Squares strictly between two aligned squares, and the whole line through them (0 if not aligned)
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final long[] ROOK_MAGICS = {
+            0x0080008420144000L, 0x0140001000402000L, 0x8100200100081040L, 0x0580100181040800L,
+            0x0480040002480180L, 0x020002001004C108L, 0x06002600180104ACL, 0x0A00010200804024L,
+            0x1102800320814002L, 0xC000808040002000L, 0x0202802000821000L, 0x4210800800801000L,
+            0x8008808044004800L, 0x0006002418100200L, 0x0A00800200010080L, 0x0202000208804114L,
+            0x2010208000400080L, 0x1080484004201000L, 0x1062060020408410L, 0x4810010009001024L,
+            0x4400808008000401L, 0x9421010002080400L, 0x4208840002100801L, 0x8500020000804104L,
+            0x20A0400080208000L, 0x8840008080402008L, 0x0450200080100080L, 0x00100400C02800C0L,
+            0x0A48000880040080L, 0x1100020080800400L, 0x000A921400900148L, 0x0033004600008904L,
+            0x4202804002800020L, 0x3118804202002504L, 0x0004208842001200L, 0x0014C80084801000L,
+            0x0000080080800400L, 0x0922800400800200L, 0x8442000142008418L, 0x0020800040800100L,
+            0x1400400080008020L, 0x0010002008484002L, 0x0400200010008080L, 0x4028001000088080L,
+            0x4408000400808008L, 0x0129000400090052L, 0x8001001200110004L, 0x4000804084020001L,
+            0x1080002080400080L, 0x6A0B950022004200L, 0x8004401200268200L, 0x0002000820411600L,
+            0x0481480080040280L, 0xC001000802040100L, 0x00D1000C06000300L, 0x0026010084004200L,
+            0x2001C81100208001L, 0x0040002080110041L, 0x00410011A000400DL, 0x2081002208041001L,
+            0x0002000804201002L, 0x5101000A28040029L, 0x0100080112489004L, 0x02000E4400288102L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0x9120024202040010L, 0x2848084884044042L, 0x211000C20041A022L, 0x4002208A01403034L,
+            0x0004042004112000L, 0x6002021004120500L, 0x0022080202101041L, 0x0102020382849000L,
+            0x0000082089840500L, 0x400204C104010200L, 0x0022460202060900L, 0x0400110502000010L,
+            0x10A9840420020000L, 0x0024120150080184L, 0x0008640288443200L, 0x822000908C901000L,
+            0x0488100408084810L, 0x0010402022008910L, 0x0084000808002208L, 0x0006800802024012L,
+            0x0246008420210880L, 0x0083050200808408L, 0x2004000231040200L, 0x0A04820504088684L,
+            0x0002A80120089050L, 0x1410020008320C20L, 0x8000300008008020L, 0x0344010084200880L,
+            0x6003010001104000L, 0x0008164002004214L, 0x021811000A014100L, 0x0242020020884140L,
+            0x0001104005088800L, 0x0002105069040100L, 0x0200805001010402L, 0x4001020081880080L,
+            0x06402080202A0020L, 0x0201100080010060L, 0x03282A04002080C0L, 0x02040040802206A0L,
+            0x2008822840482090L, 0x40008C0920080805L, 0x1002002024200800L, 0x080D204202200800L,
+            0x0061510212002404L, 0x2448101002108020L, 0x44A1080091100080L, 0x0809014312000900L,
+            0x0200611C10402004L, 0x040E010082104006L, 0x0000209400880002L, 0x1002000442022020L,
+            0x1200000420820040L, 0x1000091021420204L, 0x0021200202004020L, 0x0220028401002200L,
+            0x100603C201904820L, 0x020000420201208BL, 0x0102000422055002L, 0x60C6A04202104400L,
+            0x0224000010020880L, 0x0001122044410204L, 0x408C902002042848L, 0x2404010448020040L
+    };
+
+    private static final long[] ROOK_MASK = new long[64];
+    private static final long[] BISHOP_MASK = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64];
+    private static final int[] BISHOP_SHIFT = new int[64];
+    private static final int[] ROOK_OFFSET = new int[64];
+    private static final int[] BISHOP_OFFSET = new int[64];
+    private static final long[] ROOK_TABLE;
+    private static final long[] BISHOP_TABLE;
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        int[][] kingSteps = {{1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}, {-1, -1}, {0, -1}, {1, -1}};
+
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT[sq] = steps(sq, knightSteps);
+            KING[sq] = steps(sq, kingSteps);
+            PAWN[Pieces.WHITE][sq] = steps(sq, new int[][]{{1, -1}, {1, 1}});
+            PAWN[Pieces.BLACK][sq] = steps(sq, new int[][]{{-1, -1}, {-1, 1}});
+        }
+
+        ROOK_TABLE = buildSliderTable(ROOK_DIRECTIONS, ROOK_MAGICS, ROOK_MASK, ROOK_SHIFT, ROOK_OFFSET);
+        BISHOP_TABLE = buildSliderTable(BISHOP_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASK, BISHOP_SHIFT, BISHOP_OFFSET);
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long bBit = 1L << b;
+                if (a == b) continue;
+                if ((rook(a, 0) & bBit) != 0) {
+                    BETWEEN[a][b] = rook(a, bBit) & rook(b, 1L << a);
+                    LINE[a][b] = (rook(a, 0) & rook(b, 0)) | (1L << a) | bBit;
+                } else if ((bishop(a, 0) & bBit) != 0) {
+                    BETWEEN[a][b] = bishop(a, bBit) & bishop(b, 1L << a);
+                    LINE[a][b] = (bishop(a, 0) & bishop(b, 0)) | (1L << a) | bBit;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    // Squares a pawn of the given color on this square attacks
+    public static long pawn(int color, int square) {
+        return PAWN[color][square];
+    }
+
+    public static long rook(int square, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSET[square]
+                + (int) (((occupied & ROOK_MASK[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFT[square])];
+    }
+
+    public static long bishop(int square, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSET[square]
+                + (int) (((occupied & BISHOP_MASK[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFT[square])];
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    private static long steps(int square, int[][] steps) {
+        long set = 0;
+        int rank = square >> 3, file = square & 7;
+        for (int[] step : steps) {
+            int r = rank + step[0], f = file + step[1];
+            if (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                set |= 1L << (r * 8 + f);
+            }
+        }
+        return set;
+    }
+
+    // Walks the rays from a square, stopping at (and including) the first blocker
+    private static long slide(int square, long occupied, int[][] directions) {
+        long set = 0;
+        for (int[] dir : directions) {
+            int r = (square >> 3) + dir[0], f = (square & 7) + dir[1];
+            while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                int sq = r * 8 + f;
+                set |= 1L << sq;
+                if ((occupied >>> sq & 1L) != 0) break;
+                r += dir[0];
+                f += dir[1];
+            }
+        }
+        return set;
+    }
+
+    // Relevant blockers: the rays without their last square, since a piece there never shortens the ray
+    private static long relevantMask(int square, int[][] directions) {
+        long set = 0;
+        for (int[] dir : directions) {
+            int r = (square >> 3) + dir[0], f = (square & 7) + dir[1];
+            while (r + dir[0] >= 0 && r + dir[0] < 8 && f + dir[1] >= 0 && f + dir[1] < 8) {
+                set |= 1L << (r * 8 + f);
+                r += dir[0];
+                f += dir[1];
+            }
+        }
+        return set;
+    }
+
+    private static long[] buildSliderTable(int[][] directions, long[] magics, long[] masks, int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            masks[sq] = relevantMask(sq, directions);
+            int bits = Long.bitCount(masks[sq]);
+            shifts[sq] = 64 - bits;
+            offsets[sq] = size;
+            size += 1 << bits;
+        }
+
+        long[] table = new long[size];
+        for (int sq = 0; sq < 64; sq++) {
+            // Enumerate every subset of the mask (Carry-Rippler) and store its attack set
+            long subset = 0;
+            do {
+                int index = (int) ((subset * magics[sq]) >>> shifts[sq]);
+                table[offsets[sq] + index] = slide(sq, subset, directions);
+                subset = (subset - masks[sq]) & masks[sq];
+            } while (subset != 0);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,16 @@
+package chess.core;
+
+// A FEN that could not be parsed, with the index of the offending character in the parsed text
+// (counted from the start of the CharSequence, or from the offset of a byte range).
+public class FenFormatException extends IllegalArgumentException {
+    private final int index;
+
+    public FenFormatException(String reason, int index) {
+        super("Invalid FEN at column " + (index + 1) + ": " + reason);
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
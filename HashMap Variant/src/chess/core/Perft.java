@@ -0,0 +1,67 @@
+package chess.core;
+
+// Counts the leaf nodes of the legal move tree to a fixed depth. Every ply has its own move buffer
+// from a MoveStack, so a run allocates nothing once the stack has reached the depth; the last ply is
+// counted from the generator's move count without playing the moves (bulk counting). With a
+// PerftTable, subtrees reached again by a transposition are looked up instead of counted again.
+public class Perft {
+    private final Position position;
+    private final MoveStack moves;
+    private final PerftTable table;
+
+    public Perft(Position position, int maxDepth) {
+        this(position, maxDepth, null);
+    }
+
+    public Perft(Position position, int maxDepth, PerftTable table) {
+        this(position, new MoveStack(maxDepth), table);
+    }
+
+    // Shares the caller's buffers, e.g. one stack per worker thread
+    public Perft(Position position, MoveStack moves, PerftTable table) {
+        this.position = position;
+        this.moves = moves;
+        this.table = table;
+    }
+
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        if (table != null && depth > 1) {
+            long cached = table.probe(position.key, depth);
+            if (cached >= 0) {
+                return cached;
+            }
+        }
+
+        int[] buffer = moves.ply(depth - 1);
+        int count = MoveGenerator.generateLegal(position, buffer);
+        if (depth == 1) {
+            return count;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(buffer[i]);
+            nodes += perft(depth - 1);
+            position.unmakeMove();
+        }
+
+        if (table != null) {
+            table.store(position.key, depth, nodes);
+        }
+        return nodes;
+    }
+
+    // Splits the count by root move: rootMoves[i] leads to counts[i] nodes. Returns the number of root moves.
+    public int divide(int depth, int[] rootMoves, long[] counts) {
+        int count = MoveGenerator.generateLegal(position, rootMoves);
+        for (int i = 0; i < count; i++) {
+            position.makeMove(rootMoves[i]);
+            counts[i] = perft(depth - 1);
+            position.unmakeMove();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,62 @@
+package chess.history;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// One short[] grown by half when full: 2 bytes per entry, but a full copy on every growth
+public final class ArrayHistoryStore implements HistoryStore {
+    private short[] moves = new short[64];
+    private int size;
+
+    @Override
+    public String name() {
+        return "array";
+    }
+
+    @Override
+    public void append(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size + (size >> 1));
+        }
+        moves[size++] = (short) move;
+    }
+
+    @Override
+    public void truncateAfter(int index) {
+        size = Math.min(size, Math.max(-1, index) + 1);
+    }
+
+    @Override
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("entry " + index + " of " + size);
+        }
+        return moves[index] & 0xFFFF;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator(int fromIndex) {
+        return new PrimitiveIterator.OfInt() {
+            private int next = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return moves[next++] & 0xFFFF;
+            }
+        };
+    }
+}
@@ -0,0 +1,207 @@
+package chess.history;
+
+import chess.core.Move;
+import chess.core.MoveGenerator;
+import chess.core.Position;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+
+// Game history kept as moves instead of positions: every entry is the 16-bit move that leads to it
+// from the entry before, so a ply costs 2 bytes in an array store instead of a FEN String. A full
+// snapshot of the position (Position.writeSnapshot, 40 bytes) is kept as a keyframe every
+// keyframeInterval entries, so any entry is rebuilt by restoring the nearest keyframe at or before it
+// and replaying fewer than keyframeInterval moves, however long the game. Entries that no move leads to
+// (the first one, a FEN typed in, an unrelated line in an imported file) always get a keyframe; their
+// move slot is unused.
+//
+// The position of the last entry is kept, so appending a move never replays anything; it is rebuilt
+// once after the history has been cut back. The moves themselves live in a HistoryStore, so the same
+// history can be kept in any of the collections being compared. A history belongs to one thread at a
+// time.
+public final class MoveHistory implements HistoryView {
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 64;
+
+    private final HistoryStore moves;
+    private final int keyframeInterval;
+
+    // Entry index of every keyframe, in entry order, and their snapshots
+    private int[] keyframeIndexes = new int[4];
+    private long[] keyframes = new long[4 * Position.SNAPSHOT_LONGS];
+    private int keyframeCount;
+
+    private final Position last = new Position();
+    private boolean lastValid;
+    private final Position scratch = new Position();
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+
+    public MoveHistory() {
+        this(new ArrayHistoryStore(), DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    // Anything already in the store is dropped
+    public MoveHistory(HistoryStore moves, int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("keyframe interval must be at least 1: " + keyframeInterval);
+        }
+        this.moves = moves;
+        this.keyframeInterval = keyframeInterval;
+        moves.truncateAfter(-1);
+    }
+
+    public HistoryStore store() {
+        return moves;
+    }
+
+    public int keyframeInterval() {
+        return keyframeInterval;
+    }
+
+    @Override
+    public int size() {
+        return moves.size();
+    }
+
+    public boolean isEmpty() {
+        return moves.size() == 0;
+    }
+
+    // Adds the position after a legal move from the last entry
+    public void appendMove(int move) {
+        if (moves.size() == 0) {
+            throw new IllegalStateException("history has no start position");
+        }
+        ensureLast();
+        last.makeMove(move);
+        last.clearUndo();
+        moves.append(move);
+        if (moves.size() - 1 - keyframeIndexes[keyframeCount - 1] >= keyframeInterval) {
+            addKeyframe();
+        }
+    }
+
+    // Adds a position; it is stored as a move when one legal move leads to it from the last entry.
+    // Returns that move, or Move.NONE if the position starts a segment.
+    public int appendPosition(Position position) {
+        if (moves.size() > 0) {
+            int move = moveBetween(position);
+            if (move != Move.NONE) {
+                appendMove(move);
+                return move;
+            }
+        }
+
+        moves.append(Move.NONE);
+        if (position != last) {
+            last.copyFrom(position);
+        }
+        lastValid = true;
+        addKeyframe();
+        return Move.NONE;
+    }
+
+    // Drops every entry after the given one
+    public void truncateAfter(int index) {
+        if (index >= moves.size() - 1) {
+            return;
+        }
+        moves.truncateAfter(Math.max(-1, index));
+        while (keyframeCount > 0 && keyframeIndexes[keyframeCount - 1] >= moves.size()) {
+            keyframeCount--;
+        }
+        lastValid = false;
+    }
+
+    // The move that leads to the entry, or Move.NONE if the entry starts a segment
+    public int moveAt(int index) {
+        checkIndex(index);
+        return moves.get(index);
+    }
+
+    // The replayed moves stay on the target's undo stack
+    @Override
+    public void positionAt(int index, Position target) {
+        checkIndex(index);
+        int keyframe = keyframeOf(index);
+        target.readSnapshot(keyframes, keyframe * Position.SNAPSHOT_LONGS);
+        PrimitiveIterator.OfInt replay = moves.iterator(keyframeIndexes[keyframe] + 1);
+        for (int i = keyframeIndexes[keyframe] + 1; i <= index; i++) {
+            target.makeMove(replay.nextInt());
+        }
+    }
+
+    @Override
+    public void forEachPosition(Consumer<Position> action) {
+        forEachEntry((move, position) -> action.accept(position));
+    }
+
+    // Replays the whole history once instead of once per entry
+    @Override
+    public void forEachEntry(EntryAction action) {
+        PrimitiveIterator.OfInt all = moves.iterator();
+        for (int i = 0; all.hasNext(); i++) {
+            int move = all.nextInt();
+            if (move == Move.NONE) {
+                scratch.readSnapshot(keyframes, keyframeOf(i) * Position.SNAPSHOT_LONGS);
+            } else {
+                scratch.makeMove(move);
+                scratch.clearUndo();
+            }
+            action.accept(move, scratch);
+        }
+    }
+
+    // Snapshot of the last entry, which is the position held in last
+    private void addKeyframe() {
+        if (keyframeCount == keyframeIndexes.length) {
+            keyframeIndexes = Arrays.copyOf(keyframeIndexes, keyframeCount * 2);
+            keyframes = Arrays.copyOf(keyframes, keyframeCount * 2 * Position.SNAPSHOT_LONGS);
+        }
+        keyframeIndexes[keyframeCount] = moves.size() - 1;
+        last.writeSnapshot(keyframes, keyframeCount * Position.SNAPSHOT_LONGS);
+        keyframeCount++;
+    }
+
+    private void ensureLast() {
+        if (!lastValid) {
+            positionAt(moves.size() - 1, last);
+            last.clearUndo();
+            lastValid = true;
+        }
+    }
+
+    private int moveBetween(Position target) {
+        ensureLast();
+        return moveBetween(last, target, legalMoves);
+    }
+
+    // The legal move from one position that gives exactly the other, clocks included, or Move.NONE;
+    // legalMoves is scratch space of MoveGenerator.MAX_MOVES
+    static int moveBetween(Position from, Position target, int[] legalMoves) {
+        int count = MoveGenerator.generateLegal(from, legalMoves);
+        for (int i = 0; i < count; i++) {
+            from.makeMove(legalMoves[i]);
+            boolean same = from.key() == target.key()
+                    && from.halfmoveClock() == target.halfmoveClock()
+                    && from.fullmoveNumber() == target.fullmoveNumber();
+            from.unmakeMove();
+            if (same) {
+                return legalMoves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    // The last keyframe at or before the entry; entry 0 always has one
+    private int keyframeOf(int index) {
+        int found = Arrays.binarySearch(keyframeIndexes, 0, keyframeCount, index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= moves.size()) {
+            throw new IndexOutOfBoundsException("entry " + index + " of " + moves.size());
+        }
+    }
+}
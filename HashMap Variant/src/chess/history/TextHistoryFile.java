@@ -0,0 +1,324 @@
+package chess.history;
+
+import chess.cli.FenTokenizer;
+import chess.core.FenParser;
+import chess.core.Position;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Reader for plain text histories (one FEN per line, blank lines skipped) that never holds the file in
+// memory. A background thread reads the file once in 1 MB blocks, finding line breaks with a
+// FenTokenizer, to count the entries and note where every STRIDE-th one starts; scan returns as soon
+// as the first entry is found. Entry k is read by going to the checkpoint before it and skipping at
+// most STRIDE - 1 lines, or by carrying on from the last entry read when that is closer, which is what
+// stepping through a game does. The checkpoints are the only per-entry memory: 8 bytes per STRIDE entries.
+// stopLoading ends the pass after the current block, leaving a history of the entries found so far.
+final class TextHistoryFile extends HistoryFile {
+    private static final int STRIDE = 64;
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int MAX_LINE = 256;
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    // Written by the indexing thread only; a checkpoint slot is written before the size that reaches it
+    private volatile long[] checkpoints = new long[256];
+    private volatile int size;
+    private volatile boolean loading = true;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private volatile boolean stopped;
+    private volatile long scanned;
+    private final CountDownLatch firstEntry = new CountDownLatch(1);
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    // Used by the reading thread only
+    private final byte[] buffer = new byte[64 << 10];
+    private long bufferStart;
+    private int bufferLength;
+    private final byte[] line = new byte[MAX_LINE];
+    private int cursorEntry = -1;
+    private long cursorOffset;
+    private final FenParser parser = new FenParser();
+
+    private TextHistoryFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+    }
+
+    static TextHistoryFile scan(Path file) throws IOException {
+        TextHistoryFile history = new TextHistoryFile(FileChannel.open(file));
+        Thread indexer = new Thread(history::index, "history-index " + file.getFileName());
+        indexer.setDaemon(true);
+        indexer.start();
+        try {
+            history.firstEntry.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            history.close();
+            throw new InterruptedIOException("interrupted while opening " + file);
+        }
+        if (history.size == 0 && history.failure != null) {
+            history.close();
+            throw history.failure;
+        }
+        return history;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isLoading() {
+        return loading;
+    }
+
+    @Override
+    public void awaitLoaded() throws IOException {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading the history");
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void awaitLoaded(HistoryProgress progress) throws IOException {
+        try {
+            while (!loaded.await(100, TimeUnit.MILLISECONDS)) {
+                if (!progress.update(scanned, fileSize)) {
+                    stopLoading();
+                    loaded.await();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while reading the history");
+        }
+        progress.update(scanned, fileSize);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public void stopLoading() {
+        stopped = true;
+    }
+
+    // Throws IllegalArgumentException if the line is not a valid FEN, UncheckedIOException if it cannot be read
+    @Override
+    public void positionAt(int index, Position target) {
+        int length = readEntry(index);
+        if (!parser.tryParse(line, 0, length, target)) {
+            throw new IllegalArgumentException("entry " + index + ": " + parser.exception().getMessage());
+        }
+    }
+
+    @Override
+    public String fenAt(int index) {
+        return new String(line, 0, readEntry(index), StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    // The indexing pass, on its own thread
+    private void index() {
+        FenTokenizer tokenizer = FenTokenizer.best();
+        byte[] block = new byte[BLOCK_SIZE];
+        int[] lineEnds = new int[4096];
+        long[] marks = checkpoints;
+        int count = 0;
+        try {
+            long blockStart = 0;
+            while (blockStart < fileSize && !closed && !stopped) {
+                int length = read(blockStart, block);
+                boolean last = blockStart + length >= fileSize;
+
+                int lineStart = 0;
+                int found;
+                do {
+                    found = tokenizer.lineEnds(block, lineStart, length, lineEnds);
+                    for (int i = 0; i < found; i++) {
+                        if (!isBlank(block, lineStart, lineEnds[i])) {
+                            marks = mark(marks, count++, blockStart + lineStart);
+                        }
+                        lineStart = lineEnds[i] + 1;
+                    }
+                } while (found == lineEnds.length);
+
+                if (last) {
+                    if (!isBlank(block, lineStart, length)) {
+                        marks = mark(marks, count++, blockStart + lineStart);
+                    }
+                    blockStart = fileSize;
+                } else if (lineStart == 0) {
+                    // A line longer than a block: it is an entry (an invalid one), and ends further on
+                    marks = mark(marks, count++, blockStart);
+                    blockStart = skipLine(blockStart + length, block);
+                } else {
+                    blockStart += lineStart;
+                }
+
+                // Publish the block's entries: checkpoints before the size that makes them reachable
+                checkpoints = marks;
+                size = count;
+                scanned = blockStart;
+                if (count > 0) {
+                    firstEntry.countDown();
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                failure = e;
+            }
+        } finally {
+            loading = false;
+            firstEntry.countDown();
+            loaded.countDown();
+        }
+    }
+
+    private static long[] mark(long[] marks, int entry, long offset) {
+        if (entry % STRIDE == 0) {
+            int slot = entry / STRIDE;
+            if (slot == marks.length) {
+                marks = Arrays.copyOf(marks, slot * 2);
+            }
+            marks[slot] = offset;
+        }
+        return marks;
+    }
+
+    // Offset just past the next line break at or after the given offset, or the file size
+    private long skipLine(long from, byte[] block) throws IOException {
+        while (from < fileSize) {
+            int length = read(from, block);
+            for (int i = 0; i < length; i++) {
+                if (block[i] == '\n') {
+                    return from + i + 1;
+                }
+            }
+            from += length;
+        }
+        return fileSize;
+    }
+
+    // Reads up to a full array at the offset, stopping only at the end of the file
+    private int read(long offset, byte[] into) throws IOException {
+        ByteBuffer target = ByteBuffer.wrap(into, 0, (int) Math.min(into.length, fileSize - offset));
+        while (target.hasRemaining()) {
+            if (channel.read(target, offset + target.position()) < 0) {
+                break;
+            }
+        }
+        return target.position();
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t' && bytes[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Copies entry index, without its line break, into line and returns its length
+    private int readEntry(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("entry " + index + " of " + size);
+        }
+        try {
+            int entry;
+            long pos;
+            if (cursorEntry >= 0 && cursorEntry <= index && index - cursorEntry < STRIDE) {
+                entry = cursorEntry;
+                pos = cursorOffset;
+            } else {
+                entry = index / STRIDE * STRIDE;
+                pos = checkpoints[index / STRIDE];
+            }
+
+            // pos is the start of a line holding entry number entry
+            while (true) {
+                long end = lineEnd(pos);
+                if (!isBlank(pos, end)) {
+                    if (entry == index) {
+                        cursorEntry = index;
+                        cursorOffset = pos;
+                        return copyLine(index, pos, end);
+                    }
+                    entry++;
+                }
+                pos = end + 1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int copyLine(int index, long from, long to) throws IOException {
+        if (to > from && byteAt(to - 1) == '\r') {
+            to--;
+        }
+        if (to - from > MAX_LINE) {
+            throw new IllegalArgumentException("entry " + index + ": line is longer than " + MAX_LINE + " characters");
+        }
+        int length = (int) (to - from);
+        for (int i = 0; i < length; i++) {
+            line[i] = byteAt(from + i);
+        }
+        return length;
+    }
+
+    // Offset of the '\n' that ends the line starting at the offset, or the file size for a last line without one
+    private long lineEnd(long pos) throws IOException {
+        for (; pos < fileSize; pos++) {
+            if (byteAt(pos) == '\n') {
+                return pos;
+            }
+        }
+        return fileSize;
+    }
+
+    private boolean isBlank(long from, long to) throws IOException {
+        for (long pos = from; pos < to; pos++) {
+            byte b = byteAt(pos);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte byteAt(long pos) throws IOException {
+        if (pos < bufferStart || pos >= bufferStart + bufferLength) {
+            bufferStart = pos;
+            bufferLength = read(pos, buffer);
+            if (bufferLength == 0) {
+                throw new IOException("history file is shorter than when it was opened");
+            }
+        }
+        return buffer[(int) (pos - bufferStart)];
+    }
+}
@@ -0,0 +1,96 @@
+package chess.history;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.PrimitiveIterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Every HistoryStore at every history length, without Swing in the way:
+//   append  fill an empty store with every ply
+//   branch  go back to the middle of the game and play the second half again: the truncate-on-branch
+//           of addToMoveHistory (subList(...).clear() for the lists, a remove per key for the map),
+//           plus the appends that put the store back as it was for the next invocation
+//   jump    read the move at a random ply
+//   export  read every move in order
+// The moves are random 16-bit values; stores do not look at what they hold.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryStoreBenchmark {
+    @Param({"arraylist", "linkedlist", "hashmap", "array", "chunked", "offheap"})
+    public String store;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int plies;
+
+    private short[] moves;
+    private int[] jumps;
+    private int nextJump;
+    private HistoryStore full;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        moves = new short[plies];
+        for (int i = 0; i < plies; i++) {
+            moves[i] = (short) random.nextInt(1 << 16);
+        }
+        jumps = new int[4096];
+        for (int i = 0; i < jumps.length; i++) {
+            jumps[i] = random.nextInt(plies);
+        }
+        full = filled();
+    }
+
+    @Benchmark
+    public HistoryStore append() {
+        return filled();
+    }
+
+    @Benchmark
+    public int branch() {
+        int middle = plies / 2;
+        full.truncateAfter(middle - 1);
+        for (int i = middle; i < plies; i++) {
+            full.append(moves[i]);
+        }
+        return full.size();
+    }
+
+    @Benchmark
+    public int jump() {
+        return full.get(jumps[nextJump++ & (jumps.length - 1)]);
+    }
+
+    @Benchmark
+    public long export() {
+        long sum = 0;
+        for (PrimitiveIterator.OfInt all = full.iterator(); all.hasNext(); ) {
+            sum += all.nextInt();
+        }
+        return sum;
+    }
+
+    private HistoryStore filled() {
+        HistoryStore history = HistoryStore.create(store);
+        for (short move : moves) {
+            history.append(move);
+        }
+        return history;
+    }
+}
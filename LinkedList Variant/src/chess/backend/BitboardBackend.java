@@ -0,0 +1,53 @@
+package chess.backend;
+
+import chess.core.MoveGenerator;
+import chess.core.MoveStack;
+import chess.core.Perft;
+import chess.core.Position;
+
+// The engine's own representation: chess.core.Position with its bitboards, magic slider attacks and
+// pin/check masks. Wrapped here only so the benchmark can drive it like the other backends.
+public final class BitboardBackend implements BoardBackend {
+    private final Position position = new Position();
+    private final Perft perft = new Perft(position, new MoveStack(), null);
+
+    @Override
+    public String name() {
+        return "bitboards";
+    }
+
+    @Override
+    public void setFen(String fen) {
+        position.setFen(fen);
+    }
+
+    @Override
+    public String toFen() {
+        return position.toFen();
+    }
+
+    @Override
+    public int pieceAt(int square) {
+        return position.pieceAt(square);
+    }
+
+    @Override
+    public int generateLegal(int[] moves) {
+        return MoveGenerator.generateLegal(position, moves);
+    }
+
+    @Override
+    public void makeMove(int move) {
+        position.makeMove(move);
+    }
+
+    @Override
+    public void unmakeMove() {
+        position.unmakeMove();
+    }
+
+    @Override
+    public long perft(int depth) {
+        return perft.perft(depth);
+    }
+}
@@ -0,0 +1,315 @@
+package chess.backend;
+
+import chess.core.Move;
+import chess.core.Position;
+
+import static chess.core.Pieces.*;
+
+// 0x88 mailbox: a 128-entry array where index = rank * 16 + file. The right half of every row is
+// never used, so "did this step leave the board" is a single (index & 0x88) test with no table.
+// Legality is checked by playing each pseudo-legal move and asking whether the king is attacked.
+public final class Mailbox0x88Backend extends MailboxBackend {
+    private static final int[] KNIGHT_STEPS = {33, 31, 18, 14, -14, -18, -31, -33};
+    private static final int[] KING_STEPS = {17, 16, 15, 1, -1, -15, -16, -17};
+    private static final int[] DIAGONAL_STEPS = {17, 15, -15, -17};
+    private static final int[] STRAIGHT_STEPS = {16, 1, -1, -16};
+
+    private final int[] board = new int[128];
+    private final int[] kings = {-1, -1};
+
+    public Mailbox0x88Backend() {
+        setFen(Position.START_FEN);
+    }
+
+    private static int index(int square) {
+        return square + (square & ~7);
+    }
+
+    private static int square(int index) {
+        return (index + (index & 7)) >> 1;
+    }
+
+    @Override
+    public String name() {
+        return "0x88 mailbox";
+    }
+
+    @Override
+    public int pieceAt(int square) {
+        return board[index(square)];
+    }
+
+    @Override
+    void clearBoard() {
+        java.util.Arrays.fill(board, EMPTY);
+        kings[WHITE] = kings[BLACK] = -1;
+    }
+
+    @Override
+    void setPiece(int square, int piece) {
+        board[index(square)] = piece;
+        if (kind(piece) == KING) {
+            kings[color(piece)] = index(square);
+        }
+    }
+
+    @Override
+    public int generateLegal(int[] moves) {
+        int us = sideToMove;
+        int count = generatePseudoLegal(moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(moves[i]);
+            if (kings[us] < 0 || !isAttacked(kings[us], us ^ 1)) {
+                moves[legal++] = moves[i];
+            }
+            unmakeMove();
+        }
+        return legal;
+    }
+
+    private int generatePseudoLegal(int[] moves) {
+        int us = sideToMove;
+        int count = 0;
+        for (int from = 0; from < 128; from++) {
+            if ((from & 0x88) != 0) {
+                from += 7;
+                continue;
+            }
+            int piece = board[from];
+            if (piece == EMPTY || color(piece) != us) {
+                continue;
+            }
+            switch (kind(piece)) {
+                case PAWN:
+                    count = addPawnMoves(moves, count, from, us);
+                    break;
+                case KNIGHT:
+                    count = addSteps(moves, count, from, KNIGHT_STEPS, us);
+                    break;
+                case BISHOP:
+                    count = addSlides(moves, count, from, DIAGONAL_STEPS, us);
+                    break;
+                case ROOK:
+                    count = addSlides(moves, count, from, STRAIGHT_STEPS, us);
+                    break;
+                case QUEEN:
+                    count = addSlides(moves, count, from, DIAGONAL_STEPS, us);
+                    count = addSlides(moves, count, from, STRAIGHT_STEPS, us);
+                    break;
+                default:
+                    count = addSteps(moves, count, from, KING_STEPS, us);
+                    count = addCastling(moves, count, from, us);
+                    break;
+            }
+        }
+        return count;
+    }
+
+    private int addPawnMoves(int[] moves, int count, int from, int us) {
+        int forward = us == WHITE ? 16 : -16;
+        int promotionRank = us == WHITE ? 7 : 0;
+        int one = from + forward;
+        if ((one & 0x88) == 0 && board[one] == EMPTY) {
+            count = addPawnMove(moves, count, from, one, Move.QUIET, promotionRank);
+            int two = one + forward;
+            if ((from >> 4) == (us == WHITE ? 1 : 6) && board[two] == EMPTY) {
+                moves[count++] = Move.of(square(from), square(two), Move.DOUBLE_PUSH);
+            }
+        }
+        for (int side = -1; side <= 1; side += 2) {
+            int to = one + side;
+            if ((to & 0x88) != 0) {
+                continue;
+            }
+            int target = board[to];
+            if (target != EMPTY && color(target) != us) {
+                count = addPawnMove(moves, count, from, to, Move.CAPTURE, promotionRank);
+            } else if (target == EMPTY && square(to) == enPassantSquare) {
+                moves[count++] = Move.of(square(from), square(to), Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int[] moves, int count, int from, int to, int flags, int promotionRank) {
+        if ((to >> 4) != promotionRank) {
+            moves[count++] = Move.of(square(from), square(to), flags);
+            return count;
+        }
+        for (int promotion = 0; promotion < 4; promotion++) {
+            moves[count++] = Move.of(square(from), square(to), flags | Move.PROMOTION | promotion);
+        }
+        return count;
+    }
+
+    private int addSteps(int[] moves, int count, int from, int[] steps, int us) {
+        for (int step : steps) {
+            int to = from + step;
+            if ((to & 0x88) != 0) {
+                continue;
+            }
+            int target = board[to];
+            if (target == EMPTY) {
+                moves[count++] = Move.of(square(from), square(to), Move.QUIET);
+            } else if (color(target) != us) {
+                moves[count++] = Move.of(square(from), square(to), Move.CAPTURE);
+            }
+        }
+        return count;
+    }
+
+    private int addSlides(int[] moves, int count, int from, int[] steps, int us) {
+        for (int step : steps) {
+            for (int to = from + step; (to & 0x88) == 0; to += step) {
+                int target = board[to];
+                if (target == EMPTY) {
+                    moves[count++] = Move.of(square(from), square(to), Move.QUIET);
+                    continue;
+                }
+                if (color(target) != us) {
+                    moves[count++] = Move.of(square(from), square(to), Move.CAPTURE);
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    // The king may not castle out of, through or into check; the landing square is tested by generateLegal
+    private int addCastling(int[] moves, int count, int from, int us) {
+        int home = us == WHITE ? 0x04 : 0x74;
+        if (from != home || castlingRights == 0) {
+            return count;
+        }
+        int rook = make(us, ROOK);
+        int them = us ^ 1;
+        int kingside = us == WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = us == WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        if ((castlingRights & kingside) != 0 && board[home + 3] == rook
+                && board[home + 1] == EMPTY && board[home + 2] == EMPTY
+                && !isAttacked(home, them) && !isAttacked(home + 1, them)) {
+            moves[count++] = Move.of(square(home), square(home + 2), Move.KING_CASTLE);
+        }
+        if ((castlingRights & queenside) != 0 && board[home - 4] == rook
+                && board[home - 1] == EMPTY && board[home - 2] == EMPTY && board[home - 3] == EMPTY
+                && !isAttacked(home, them) && !isAttacked(home - 1, them)) {
+            moves[count++] = Move.of(square(home), square(home - 2), Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+
+    // Looks outward from the target: a knight a knight's step away attacks it, and so on
+    private boolean isAttacked(int target, int byColor) {
+        int pawnStep = byColor == WHITE ? -16 : 16;
+        int pawn = make(byColor, PAWN);
+        for (int side = -1; side <= 1; side += 2) {
+            int from = target + pawnStep + side;
+            if ((from & 0x88) == 0 && board[from] == pawn) {
+                return true;
+            }
+        }
+        if (isSteppedOn(target, KNIGHT_STEPS, make(byColor, KNIGHT))
+                || isSteppedOn(target, KING_STEPS, make(byColor, KING))) {
+            return true;
+        }
+        int queen = make(byColor, QUEEN);
+        return isSlidOn(target, DIAGONAL_STEPS, make(byColor, BISHOP), queen)
+                || isSlidOn(target, STRAIGHT_STEPS, make(byColor, ROOK), queen);
+    }
+
+    private boolean isSteppedOn(int target, int[] steps, int piece) {
+        for (int step : steps) {
+            int from = target + step;
+            if ((from & 0x88) == 0 && board[from] == piece) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSlidOn(int target, int[] steps, int slider, int queen) {
+        for (int step : steps) {
+            for (int from = target + step; (from & 0x88) == 0; from += step) {
+                int piece = board[from];
+                if (piece != EMPTY) {
+                    if (piece == slider || piece == queen) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void makeMove(int move) {
+        int from = index(Move.from(move));
+        int to = index(Move.to(move));
+        int flags = Move.flags(move);
+        int piece = board[from];
+        int victim = flags == Move.EN_PASSANT ? index(Move.to(move) ^ 8) : to;
+        int captured = board[victim];
+        int us = sideToMove;
+        beginMove(move, piece, captured);
+
+        board[victim] = EMPTY;
+        board[from] = EMPTY;
+        board[to] = Move.isPromotion(move) ? make(us, Move.promotionKind(move)) : piece;
+        if (kind(piece) == KING) {
+            kings[us] = to;
+            if (flags == Move.KING_CASTLE) {
+                board[from + 1] = board[from + 3];
+                board[from + 3] = EMPTY;
+            } else if (flags == Move.QUEEN_CASTLE) {
+                board[from - 1] = board[from - 4];
+                board[from - 4] = EMPTY;
+            }
+        }
+    }
+
+    @Override
+    public void unmakeMove() {
+        long undo = endUnmake();
+        int move = undoMove(undo);
+        int from = index(Move.from(move));
+        int to = index(Move.to(move));
+        int flags = Move.flags(move);
+        int us = sideToMove;
+        int piece = Move.isPromotion(move) ? make(us, PAWN) : board[to];
+
+        board[to] = EMPTY;
+        board[flags == Move.EN_PASSANT ? index(Move.to(move) ^ 8) : to] = undoCaptured(undo);
+        board[from] = piece;
+        if (kind(piece) == KING) {
+            kings[us] = from;
+            if (flags == Move.KING_CASTLE) {
+                board[from + 3] = board[from + 1];
+                board[from + 1] = EMPTY;
+            } else if (flags == Move.QUEEN_CASTLE) {
+                board[from - 4] = board[from - 1];
+                board[from - 1] = EMPTY;
+            }
+        }
+    }
+
+    @Override
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] buffer = moves.ply(depth - 1);
+        int count = generateLegal(buffer);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(buffer[i]);
+            nodes += perft(depth - 1);
+            unmakeMove();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,112 @@
+package chess.backend;
+
+import chess.core.FenParser;
+import chess.core.FenWriter;
+import chess.core.Move;
+import chess.core.MoveStack;
+import chess.core.Position;
+
+import static chess.core.Pieces.*;
+
+// What the square-array backends have in common: side to move, castling rights, en passant square,
+// the clocks and the undo stack, plus FEN reading and writing through FenParser and FenWriter. Squares
+// here are chess.core squares; each subclass maps them onto its own array and owns move generation,
+// so the hot loops of one backend never share call sites with another's.
+abstract class MailboxBackend implements BoardBackend {
+    int sideToMove = WHITE;
+    int castlingRights;
+    int enPassantSquare = Position.NO_SQUARE;
+    int halfmoveClock;
+    int fullmoveNumber = 1;
+    final MoveStack moves = new MoveStack();
+
+    private long[] undoStack = new long[256];
+    private int undoCount;
+
+    // Scratch for setFen and toFen
+    private final Position codec = new Position();
+    private final long[] snapshot = new long[Position.SNAPSHOT_LONGS];
+
+    abstract void clearBoard();
+
+    abstract void setPiece(int square, int piece);
+
+    // Reads into a Position with FenParser and copies the placement and state across, so every backend
+    // accepts and rejects exactly what Position does
+    @Override
+    public void setFen(String fen) {
+        FenParser.parse(fen, codec);
+        clearBoard();
+        for (int square = 0; square < 64; square++) {
+            int piece = codec.pieceAt(square);
+            if (piece != EMPTY) {
+                setPiece(square, piece);
+            }
+        }
+        sideToMove = codec.sideToMove();
+        castlingRights = codec.castlingRights();
+        enPassantSquare = codec.enPassantSquare();
+        halfmoveClock = codec.halfmoveClock();
+        fullmoveNumber = codec.fullmoveNumber();
+        undoCount = 0;
+    }
+
+    // Loads the board into the Position as a snapshot, which needs no parsing, and lets FenWriter write it
+    @Override
+    public String toFen() {
+        java.util.Arrays.fill(snapshot, 0L);
+        for (int square = 0; square < 64; square++) {
+            snapshot[square >> 4] |= (long) (pieceAt(square) + 1) << ((square & 15) << 2);
+        }
+        snapshot[4] = sideToMove
+                | castlingRights << 1
+                | (enPassantSquare + 1) << 5
+                | (long) halfmoveClock << 12
+                | (long) fullmoveNumber << 28;
+        codec.readSnapshot(snapshot, 0);
+        return FenWriter.toString(codec);
+    }
+
+    // Saves the state unmakeMove cannot work out again, then applies the non-placement part of a move
+    final void beginMove(int move, int piece, int captured) {
+        if (undoCount == undoStack.length) {
+            undoStack = java.util.Arrays.copyOf(undoStack, undoStack.length * 2);
+        }
+        undoStack[undoCount++] = move
+                | (long) (captured + 1) << 16
+                | (long) castlingRights << 20
+                | (long) (enPassantSquare + 1) << 24
+                | (long) halfmoveClock << 32;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        enPassantSquare = Move.flags(move) == Move.DOUBLE_PUSH ? (from + to) >> 1 : Position.NO_SQUARE;
+        castlingRights = Position.castlingRightsAfter(castlingRights, from, to);
+        halfmoveClock = kind(piece) == PAWN || captured != EMPTY ? 0 : halfmoveClock + 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+    }
+
+    // Restores the state saved by beginMove and returns the undo entry; see undoMove and undoCaptured
+    final long endUnmake() {
+        long undo = undoStack[--undoCount];
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+        castlingRights = (int) (undo >>> 20) & 15;
+        enPassantSquare = ((int) (undo >>> 24) & 255) - 1;
+        halfmoveClock = (int) (undo >>> 32);
+        return undo;
+    }
+
+    static int undoMove(long undo) {
+        return (int) undo & 0xFFFF;
+    }
+
+    static int undoCaptured(long undo) {
+        return ((int) (undo >>> 16) & 15) - 1;
+    }
+}
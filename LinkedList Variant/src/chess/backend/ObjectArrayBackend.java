@@ -0,0 +1,349 @@
+package chess.backend;
+
+import chess.core.Move;
+import chess.core.Position;
+import chess.model.Piece;
+import chess.model.PieceType;
+
+import static chess.core.Pieces.*;
+
+// The board the UI started with: an 8x8 array of Piece objects indexed [row][col], row 0 being rank 8,
+// with null for an empty square. Every step is bounds-checked on both coordinates and every piece
+// test goes through the Piece object to its PieceType. Legality and castling are checked the same way
+// as in Mailbox0x88Backend.
+public final class ObjectArrayBackend extends MailboxBackend {
+    private static final int[][] KNIGHT_STEPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    private static final int[][] DIAGONAL_STEPS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] STRAIGHT_STEPS = {{-1, 0}, {0, -1}, {0, 1}, {1, 0}};
+
+    // One shared Piece per type, as the UI uses them
+    private static final Piece[] PIECES = new Piece[12];
+
+    static {
+        for (PieceType type : PieceType.values()) {
+            PIECES[type.ordinal()] = new Piece(type);
+        }
+    }
+
+    private final Piece[][] board = new Piece[8][8];
+    private final int[] kingRows = {-1, -1};
+    private final int[] kingCols = {-1, -1};
+
+    public ObjectArrayBackend() {
+        setFen(Position.START_FEN);
+    }
+
+    private static int code(Piece piece) {
+        return piece == null ? EMPTY : piece.getType().ordinal();
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+
+    @Override
+    public String name() {
+        return "8x8 object array";
+    }
+
+    @Override
+    public int pieceAt(int square) {
+        return code(board[Position.row(square)][Position.col(square)]);
+    }
+
+    @Override
+    void clearBoard() {
+        for (Piece[] row : board) {
+            java.util.Arrays.fill(row, null);
+        }
+        kingRows[WHITE] = kingRows[BLACK] = -1;
+    }
+
+    @Override
+    void setPiece(int square, int piece) {
+        board[Position.row(square)][Position.col(square)] = PIECES[piece];
+        if (kind(piece) == KING) {
+            kingRows[color(piece)] = Position.row(square);
+            kingCols[color(piece)] = Position.col(square);
+        }
+    }
+
+    @Override
+    public int generateLegal(int[] moves) {
+        int us = sideToMove;
+        int count = generatePseudoLegal(moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(moves[i]);
+            if (kingRows[us] < 0 || !isAttacked(kingRows[us], kingCols[us], us ^ 1)) {
+                moves[legal++] = moves[i];
+            }
+            unmakeMove();
+        }
+        return legal;
+    }
+
+    private int generatePseudoLegal(int[] moves) {
+        int us = sideToMove;
+        int count = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                int piece = code(board[row][col]);
+                if (piece == EMPTY || color(piece) != us) {
+                    continue;
+                }
+                switch (kind(piece)) {
+                    case PAWN:
+                        count = addPawnMoves(moves, count, row, col, us);
+                        break;
+                    case KNIGHT:
+                        count = addSteps(moves, count, row, col, KNIGHT_STEPS, us);
+                        break;
+                    case BISHOP:
+                        count = addSlides(moves, count, row, col, DIAGONAL_STEPS, us);
+                        break;
+                    case ROOK:
+                        count = addSlides(moves, count, row, col, STRAIGHT_STEPS, us);
+                        break;
+                    case QUEEN:
+                        count = addSlides(moves, count, row, col, DIAGONAL_STEPS, us);
+                        count = addSlides(moves, count, row, col, STRAIGHT_STEPS, us);
+                        break;
+                    default:
+                        count = addSteps(moves, count, row, col, KING_STEPS, us);
+                        count = addCastling(moves, count, row, col, us);
+                        break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private int addPawnMoves(int[] moves, int count, int row, int col, int us) {
+        // Rows count down the board, so white pawns move to lower rows
+        int forward = us == WHITE ? -1 : 1;
+        int promotionRow = us == WHITE ? 0 : 7;
+        int from = Position.square(row, col);
+        int next = row + forward;
+        if (next < 0 || next > 7) {
+            return count;
+        }
+        if (board[next][col] == null) {
+            count = addPawnMove(moves, count, from, next, col, Move.QUIET, promotionRow);
+            int two = next + forward;
+            if (row == (us == WHITE ? 6 : 1) && board[two][col] == null) {
+                moves[count++] = Move.of(from, Position.square(two, col), Move.DOUBLE_PUSH);
+            }
+        }
+        for (int side = -1; side <= 1; side += 2) {
+            int toCol = col + side;
+            if (toCol < 0 || toCol > 7) {
+                continue;
+            }
+            int target = code(board[next][toCol]);
+            if (target != EMPTY && color(target) != us) {
+                count = addPawnMove(moves, count, from, next, toCol, Move.CAPTURE, promotionRow);
+            } else if (target == EMPTY && Position.square(next, toCol) == enPassantSquare) {
+                moves[count++] = Move.of(from, Position.square(next, toCol), Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private static int addPawnMove(int[] moves, int count, int from, int row, int col, int flags, int promotionRow) {
+        int to = Position.square(row, col);
+        if (row != promotionRow) {
+            moves[count++] = Move.of(from, to, flags);
+            return count;
+        }
+        for (int promotion = 0; promotion < 4; promotion++) {
+            moves[count++] = Move.of(from, to, flags | Move.PROMOTION | promotion);
+        }
+        return count;
+    }
+
+    private int addSteps(int[] moves, int count, int row, int col, int[][] steps, int us) {
+        int from = Position.square(row, col);
+        for (int[] step : steps) {
+            int toRow = row + step[0];
+            int toCol = col + step[1];
+            if (!onBoard(toRow, toCol)) {
+                continue;
+            }
+            int target = code(board[toRow][toCol]);
+            if (target == EMPTY) {
+                moves[count++] = Move.of(from, Position.square(toRow, toCol), Move.QUIET);
+            } else if (color(target) != us) {
+                moves[count++] = Move.of(from, Position.square(toRow, toCol), Move.CAPTURE);
+            }
+        }
+        return count;
+    }
+
+    private int addSlides(int[] moves, int count, int row, int col, int[][] steps, int us) {
+        int from = Position.square(row, col);
+        for (int[] step : steps) {
+            for (int toRow = row + step[0], toCol = col + step[1]; onBoard(toRow, toCol); toRow += step[0], toCol += step[1]) {
+                int target = code(board[toRow][toCol]);
+                if (target == EMPTY) {
+                    moves[count++] = Move.of(from, Position.square(toRow, toCol), Move.QUIET);
+                    continue;
+                }
+                if (color(target) != us) {
+                    moves[count++] = Move.of(from, Position.square(toRow, toCol), Move.CAPTURE);
+                }
+                break;
+            }
+        }
+        return count;
+    }
+
+    private int addCastling(int[] moves, int count, int row, int col, int us) {
+        int homeRow = us == WHITE ? 7 : 0;
+        if (row != homeRow || col != 4 || castlingRights == 0) {
+            return count;
+        }
+        Piece[] rank = board[homeRow];
+        int rook = make(us, ROOK);
+        int them = us ^ 1;
+        int from = Position.square(row, col);
+        int kingside = us == WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = us == WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        if ((castlingRights & kingside) != 0 && code(rank[7]) == rook
+                && rank[5] == null && rank[6] == null
+                && !isAttacked(row, 4, them) && !isAttacked(row, 5, them)) {
+            moves[count++] = Move.of(from, from + 2, Move.KING_CASTLE);
+        }
+        if ((castlingRights & queenside) != 0 && code(rank[0]) == rook
+                && rank[1] == null && rank[2] == null && rank[3] == null
+                && !isAttacked(row, 4, them) && !isAttacked(row, 3, them)) {
+            moves[count++] = Move.of(from, from - 2, Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+
+    private boolean isAttacked(int row, int col, int byColor) {
+        // A white pawn attacks the row above it, which is the next row down the array
+        int pawnRow = byColor == WHITE ? row + 1 : row - 1;
+        int pawn = make(byColor, PAWN);
+        for (int side = -1; side <= 1; side += 2) {
+            if (onBoard(pawnRow, col + side) && code(board[pawnRow][col + side]) == pawn) {
+                return true;
+            }
+        }
+        if (isSteppedOn(row, col, KNIGHT_STEPS, make(byColor, KNIGHT))
+                || isSteppedOn(row, col, KING_STEPS, make(byColor, KING))) {
+            return true;
+        }
+        int queen = make(byColor, QUEEN);
+        return isSlidOn(row, col, DIAGONAL_STEPS, make(byColor, BISHOP), queen)
+                || isSlidOn(row, col, STRAIGHT_STEPS, make(byColor, ROOK), queen);
+    }
+
+    private boolean isSteppedOn(int row, int col, int[][] steps, int piece) {
+        for (int[] step : steps) {
+            int fromRow = row + step[0];
+            int fromCol = col + step[1];
+            if (onBoard(fromRow, fromCol) && code(board[fromRow][fromCol]) == piece) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSlidOn(int row, int col, int[][] steps, int slider, int queen) {
+        for (int[] step : steps) {
+            for (int r = row + step[0], c = col + step[1]; onBoard(r, c); r += step[0], c += step[1]) {
+                int piece = code(board[r][c]);
+                if (piece != EMPTY) {
+                    if (piece == slider || piece == queen) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void makeMove(int move) {
+        int fromRow = Position.row(Move.from(move));
+        int fromCol = Position.col(Move.from(move));
+        int toRow = Position.row(Move.to(move));
+        int toCol = Position.col(Move.to(move));
+        int flags = Move.flags(move);
+        Piece piece = board[fromRow][fromCol];
+        // The pawn taken en passant stands beside the moving pawn, on its starting row
+        int victimRow = flags == Move.EN_PASSANT ? fromRow : toRow;
+        int captured = code(board[victimRow][toCol]);
+        int us = sideToMove;
+        beginMove(move, code(piece), captured);
+
+        board[victimRow][toCol] = null;
+        board[fromRow][fromCol] = null;
+        board[toRow][toCol] = Move.isPromotion(move) ? PIECES[make(us, Move.promotionKind(move))] : piece;
+        if (kind(code(piece)) == KING) {
+            kingRows[us] = toRow;
+            kingCols[us] = toCol;
+            Piece[] rank = board[fromRow];
+            if (flags == Move.KING_CASTLE) {
+                rank[5] = rank[7];
+                rank[7] = null;
+            } else if (flags == Move.QUEEN_CASTLE) {
+                rank[3] = rank[0];
+                rank[0] = null;
+            }
+        }
+    }
+
+    @Override
+    public void unmakeMove() {
+        long undo = endUnmake();
+        int move = undoMove(undo);
+        int fromRow = Position.row(Move.from(move));
+        int fromCol = Position.col(Move.from(move));
+        int toRow = Position.row(Move.to(move));
+        int toCol = Position.col(Move.to(move));
+        int flags = Move.flags(move);
+        int us = sideToMove;
+        Piece piece = Move.isPromotion(move) ? PIECES[make(us, PAWN)] : board[toRow][toCol];
+        int captured = undoCaptured(undo);
+
+        board[toRow][toCol] = null;
+        board[flags == Move.EN_PASSANT ? fromRow : toRow][toCol] = captured == EMPTY ? null : PIECES[captured];
+        board[fromRow][fromCol] = piece;
+        if (kind(code(piece)) == KING) {
+            kingRows[us] = fromRow;
+            kingCols[us] = fromCol;
+            Piece[] rank = board[fromRow];
+            if (flags == Move.KING_CASTLE) {
+                rank[7] = rank[5];
+                rank[5] = null;
+            } else if (flags == Move.QUEEN_CASTLE) {
+                rank[0] = rank[3];
+                rank[3] = null;
+            }
+        }
+    }
+
+    @Override
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] buffer = moves.ply(depth - 1);
+        int count = generateLegal(buffer);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            makeMove(buffer[i]);
+            nodes += perft(depth - 1);
+            unmakeMove();
+        }
+        return nodes;
+    }
+}
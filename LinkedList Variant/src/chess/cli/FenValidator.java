@@ -0,0 +1,262 @@
+package chess.cli;
+
+import chess.core.FenParser;
+import chess.core.FenWriter;
+import chess.core.Position;
+import chess.core.Rules;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static chess.core.Pieces.*;
+
+// Batch FEN validation:
+//   validate <input> [output] [--threads N]
+// The input is memory-mapped in chunks of whole lines and the chunks are checked in parallel; line
+// breaks are found in bulk by a FenTokenizer (SIMD when the Vector API is available). Every input line
+// gives exactly one output line, in the same order: the normalized FEN, an empty line for an empty
+// one, or "error: <reason>" for a record that is malformed or describes an impossible position.
+// Output goes to the file if one is given, otherwise to stdout; the summary with the throughput goes
+// to stdout in the first case and to stderr in the second.
+public class FenValidator {
+    // Bytes per chunk; a chunk always ends on a line break, so a line may not be longer than this
+    private static final int CHUNK_SIZE = 8 << 20;
+    // Longer lines cannot be a FEN and are reported without being parsed
+    private static final int MAX_LINE = 256;
+
+    private static final ThreadLocal<Worker> WORKERS = ThreadLocal.withInitial(Worker::new);
+
+    public static boolean isCommand(String name) {
+        return name.equals("validate");
+    }
+
+    // Returns a process exit code: 0 if every line was valid, 1 if some were not, 2 on bad usage or I/O errors
+    public static int run(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        java.util.List<String> files = new java.util.ArrayList<>();
+        boolean badUsage = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threads")) {
+                if (i + 1 == args.length) {
+                    badUsage = true;
+                    break;
+                }
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    badUsage = true;
+                }
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (badUsage || files.isEmpty() || files.size() > 2 || threads < 1) {
+            System.err.println("Usage: validate <input> [output] [--threads N]");
+            return 2;
+        }
+
+        Path input = Paths.get(files.get(0));
+        Path output = files.size() > 1 ? Paths.get(files.get(1)) : null;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             WritableByteChannel out = output == null ? Channels.newChannel(System.out)
+                     : FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long startTime = System.nanoTime();
+            long[] totals = validate(in, out, pool, threads);
+            long endTime = System.nanoTime();
+
+            java.io.PrintStream report = output == null ? System.err : System.out;
+            double seconds = Math.max(1, endTime - startTime) / 1e9;
+            report.printf("%,d records: %,d valid, %,d invalid%n", totals[0], totals[1], totals[2]);
+            report.printf("%,d bytes in %,.1f milliseconds (%,.0f records/sec, %,.1f MB/sec) on %d threads, %s tokenizer%n",
+                    in.size(), seconds * 1000, totals[0] / seconds, in.size() / seconds / 1e6, threads,
+                    FenTokenizer.best().name());
+            return totals[2] == 0 ? 0 : 1;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("validate: " + e.getMessage());
+            return 2;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Returns record, valid and invalid counts (empty lines are not records). At most two chunks per thread are in flight, so memory
+    // stays bounded however large the file is.
+    private static long[] validate(FileChannel in, WritableByteChannel out, ExecutorService pool, int threads)
+            throws IOException {
+        long size = in.size();
+        long[] totals = new long[3];
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+
+        long start = 0;
+        while (start < size) {
+            MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+            int length = window.limit();
+            if (start + length < size) {
+                // Cut the chunk after its last line break
+                while (length > 0 && window.get(length - 1) != '\n') {
+                    length--;
+                }
+                if (length == 0) {
+                    throw new IllegalArgumentException("line at byte " + start + " is longer than " + CHUNK_SIZE + " bytes");
+                }
+                window.limit(length);
+            }
+            start += length;
+
+            if (pending.size() == 2 * threads) {
+                write(pending.removeFirst(), out, totals);
+            }
+            pending.addLast(pool.submit(() -> WORKERS.get().validate(window)));
+        }
+        while (!pending.isEmpty()) {
+            write(pending.removeFirst(), out, totals);
+        }
+        return totals;
+    }
+
+    private static void write(Future<Chunk> future, WritableByteChannel out, long[] totals) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(chunk.output, 0, chunk.length);
+        while (bytes.hasRemaining()) {
+            out.write(bytes);
+        }
+        totals[0] += chunk.valid + chunk.invalid;
+        totals[1] += chunk.valid;
+        totals[2] += chunk.invalid;
+    }
+
+    private static final class Chunk {
+        byte[] output;
+        int length;
+        long valid;
+        long invalid;
+    }
+
+    // Per-thread parser, position and buffers, reused for every chunk the thread checks
+    private static final class Worker {
+        private final FenParser parser = new FenParser();
+        private final Position position = new Position();
+        private final FenTokenizer tokenizer = FenTokenizer.best();
+        private final int[] lineEnds = new int[4096];
+        private byte[] data = new byte[0];
+
+        Chunk validate(ByteBuffer input) {
+            int size = input.remaining();
+            if (data.length < size) {
+                data = new byte[size];
+            }
+            input.get(data, 0, size);
+
+            Chunk chunk = new Chunk();
+            // Normalized lines are rarely longer than the input, so this seldom has to grow
+            chunk.output = new byte[size + (size >> 2) + FenWriter.MAX_LENGTH];
+
+            // Line breaks are found in bulk, then each line is parsed in place
+            int lineStart = 0;
+            while (lineStart < size) {
+                int count = tokenizer.lineEnds(data, lineStart, size, lineEnds);
+                if (count == 0) {
+                    validateLine(chunk, lineStart, size);
+                    break;
+                }
+                for (int i = 0; i < count; i++) {
+                    validateLine(chunk, lineStart, lineEnds[i]);
+                    lineStart = lineEnds[i] + 1;
+                }
+            }
+            return chunk;
+        }
+
+        private void validateLine(Chunk chunk, int start, int end) {
+            int length = end - start;
+            if (length > 0 && data[end - 1] == '\r') {
+                length--;
+            }
+            ensureRoom(chunk, FenWriter.MAX_LENGTH + 1);
+
+            if (length > 0) {
+                String problem;
+                if (length > MAX_LINE) {
+                    problem = "line is longer than " + MAX_LINE + " characters";
+                } else {
+                    problem = parser.tryParse(data, start, length, position)
+                            ? problemWith(position) : parser.error() + " at column " + (parser.errorIndex() + 1);
+                }
+
+                if (problem == null) {
+                    chunk.length += FenWriter.write(position, chunk.output, chunk.length);
+                    chunk.valid++;
+                } else {
+                    chunk.length = append(chunk, "error: " + problem);
+                    chunk.invalid++;
+                }
+            }
+            chunk.output[chunk.length++] = '\n';
+        }
+
+        private static void ensureRoom(Chunk chunk, int room) {
+            if (chunk.output.length - chunk.length < room) {
+                chunk.output = java.util.Arrays.copyOf(chunk.output, chunk.output.length * 2 + room);
+            }
+        }
+
+        private static int append(Chunk chunk, String text) {
+            ensureRoom(chunk, text.length() + 1);
+            int n = chunk.length;
+            for (int i = 0; i < text.length(); i++) {
+                chunk.output[n++] = (byte) text.charAt(i);
+            }
+            return n;
+        }
+    }
+
+    // Null if the parsed position is possible, otherwise why not. Pawns on a back rank and en passant
+    // squares no double push left behind were already turned down by FenParser.
+    static String problemWith(Position position) {
+        if (Long.bitCount(position.pieces(WHITE, KING)) != 1) {
+            return "white must have exactly one king";
+        }
+        if (Long.bitCount(position.pieces(BLACK, KING)) != 1) {
+            return "black must have exactly one king";
+        }
+
+        int rights = position.castlingRights();
+        if ((rights & (Position.WHITE_KINGSIDE | Position.WHITE_QUEENSIDE)) != 0 && position.pieceAt(4) != WHITE_KING
+                || (rights & (Position.BLACK_KINGSIDE | Position.BLACK_QUEENSIDE)) != 0 && position.pieceAt(60) != BLACK_KING) {
+            return "castling rights for a king that is not on its home square";
+        }
+        if ((rights & Position.WHITE_KINGSIDE) != 0 && position.pieceAt(7) != WHITE_ROOK
+                || (rights & Position.WHITE_QUEENSIDE) != 0 && position.pieceAt(0) != WHITE_ROOK
+                || (rights & Position.BLACK_KINGSIDE) != 0 && position.pieceAt(63) != BLACK_ROOK
+                || (rights & Position.BLACK_QUEENSIDE) != 0 && position.pieceAt(56) != BLACK_ROOK) {
+            return "castling rights for a rook that is not on its home square";
+        }
+
+        if (Rules.isKingInCheck(position, position.sideToMove() ^ 1)) {
+            return "the side not to move is in check";
+        }
+        return null;
+    }
+}
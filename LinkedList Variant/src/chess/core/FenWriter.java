@@ -0,0 +1,135 @@
+package chess.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static chess.core.Pieces.*;
+
+// Writes a Position as FEN in ASCII straight into a caller's byte[], ByteBuffer or Appendable. Piece
+// letters come from a table indexed by piece code, which is also the chess.model.PieceType ordinal.
+// The record is built in a scratch array owned by the writer, so only the caller's buffer is touched
+// and no String exists unless toString is asked for. A writer is not thread-safe; the static methods
+// use one per thread.
+public final class FenWriter {
+    // Longest possible record: 71 placement characters plus " w KQkq e3 65535 1000000"
+    public static final int MAX_LENGTH = 96;
+
+    private static final byte[] PIECE_CHARS = {'P', 'N', 'B', 'R', 'Q', 'K', 'p', 'n', 'b', 'r', 'q', 'k'};
+    private static final byte[] CASTLING_CHARS = {'K', 'Q', 'k', 'q'};
+
+    private static final ThreadLocal<FenWriter> WRITERS = ThreadLocal.withInitial(FenWriter::new);
+
+    private final byte[] scratch = new byte[MAX_LENGTH];
+
+    public static int write(Position position, byte[] dst, int offset) {
+        return WRITERS.get().writeTo(position, dst, offset);
+    }
+
+    public static int write(Position position, ByteBuffer dst) {
+        return WRITERS.get().writeTo(position, dst);
+    }
+
+    public static void write(Position position, Appendable out) throws IOException {
+        WRITERS.get().writeTo(position, out);
+    }
+
+    public static String toString(Position position) {
+        FenWriter writer = WRITERS.get();
+        int length = writer.writeTo(position, writer.scratch, 0);
+        return new String(writer.scratch, 0, length, java.nio.charset.StandardCharsets.US_ASCII);
+    }
+
+    // Writes at dst[offset] and returns the number of bytes written; needs MAX_LENGTH bytes of room
+    // to be safe, and throws ArrayIndexOutOfBoundsException before writing anything if a shorter
+    // record still does not fit
+    public int writeTo(Position position, byte[] dst, int offset) {
+        int length = encode(position);
+        System.arraycopy(scratch, 0, dst, offset, length);
+        return length;
+    }
+
+    // Writes at the buffer's position and advances it; throws BufferOverflowException (writing
+    // nothing) if the record does not fit
+    public int writeTo(Position position, ByteBuffer dst) {
+        int length = encode(position);
+        dst.put(scratch, 0, length);
+        return length;
+    }
+
+    public void writeTo(Position position, Appendable out) throws IOException {
+        int length = encode(position);
+        for (int i = 0; i < length; i++) {
+            out.append((char) scratch[i]);
+        }
+    }
+
+    private int encode(Position position) {
+        byte[] out = scratch;
+        int[] board = position.board;
+        int n = 0;
+
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int sq = (7 - row) * 8, last = sq + 8; sq < last; sq++) {
+                int piece = board[sq];
+                if (piece == EMPTY) {
+                    empty++;
+                } else {
+                    if (empty > 0) {
+                        out[n++] = (byte) ('0' + empty);
+                        empty = 0;
+                    }
+                    out[n++] = PIECE_CHARS[piece];
+                }
+            }
+            if (empty > 0) {
+                out[n++] = (byte) ('0' + empty);
+            }
+            if (row < 7) {
+                out[n++] = '/';
+            }
+        }
+
+        out[n++] = ' ';
+        out[n++] = (byte) (position.sideToMove == WHITE ? 'w' : 'b');
+        out[n++] = ' ';
+
+        int rights = position.castlingRights;
+        if (rights == 0) {
+            out[n++] = '-';
+        } else {
+            // Rights are bits 0..3 in KQkq order
+            for (int bit = 0; bit < 4; bit++) {
+                if ((rights & (1 << bit)) != 0) {
+                    out[n++] = CASTLING_CHARS[bit];
+                }
+            }
+        }
+
+        out[n++] = ' ';
+        int ep = position.enPassantSquare;
+        if (ep == Position.NO_SQUARE) {
+            out[n++] = '-';
+        } else {
+            out[n++] = (byte) ('a' + (ep & 7));
+            out[n++] = (byte) ('1' + (ep >> 3));
+        }
+
+        out[n++] = ' ';
+        n = writeNumber(out, n, position.halfmoveClock);
+        out[n++] = ' ';
+        return writeNumber(out, n, position.fullmoveNumber);
+    }
+
+    private static int writeNumber(byte[] out, int n, int value) {
+        int digits = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = n + digits - 1; i >= n; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return n + digits;
+    }
+}
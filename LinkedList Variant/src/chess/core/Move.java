@@ -0,0 +1,88 @@
+package chess.core;
+
+// Moves are packed into the low 16 bits of an int: from square (6 bits), to square (6 bits) and a
+// 4-bit flag. Bit 2 of the flag marks captures and bit 3 promotions; the low two bits of a
+// promotion flag select the piece (knight, bishop, rook, queen).
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+    public static final int PROMOTION_CAPTURE = 12;
+
+    private static final String PROMOTION_CHARS = "nbrq";
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int flags) {
+        return from | to << 6 | flags << 12;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return move >>> 6 & 63;
+    }
+
+    public static int flags(int move) {
+        return move >>> 12 & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & (CAPTURE << 12)) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (PROMOTION << 12)) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        int flags = flags(move);
+        return flags == KING_CASTLE || flags == QUEEN_CASTLE;
+    }
+
+    // Bitboard of the squares the move changes: from and to, plus the pawn taken en passant or the
+    // rook of a castle. The same squares change again when the move is taken back.
+    public static long touchedSquares(int move) {
+        int from = from(move);
+        long squares = 1L << from | 1L << to(move);
+        switch (flags(move)) {
+            case EN_PASSANT:
+                return squares | 1L << (to(move) ^ 8);
+            case KING_CASTLE:
+                return squares | 1L << (from + 3) | 1L << (from + 1);
+            case QUEEN_CASTLE:
+                return squares | 1L << (from - 4) | 1L << (from - 1);
+            default:
+                return squares;
+        }
+    }
+
+    // Piece kind (Pieces.KNIGHT..QUEEN) a promotion turns the pawn into
+    public static int promotionKind(int move) {
+        return Pieces.KNIGHT + (move >>> 12 & 3);
+    }
+
+    // Long algebraic notation as used by UCI, e.g. "e2e4" or "e7e8q"
+    public static String toUci(int move) {
+        StringBuilder text = new StringBuilder(5);
+        appendSquare(text, from(move));
+        appendSquare(text, to(move));
+        if (isPromotion(move)) {
+            text.append(PROMOTION_CHARS.charAt(move >>> 12 & 3));
+        }
+        return text.toString();
+    }
+
+    private static void appendSquare(StringBuilder text, int square) {
+        text.append((char) ('a' + (square & 7))).append((char) ('1' + (square >> 3)));
+    }
+}
@@ -0,0 +1,214 @@
+package chess.core;
+
+import static chess.core.Pieces.*;
+
+// Fills a caller-supplied buffer with every legal move in a position, including castling, en passant
+// and all four promotion pieces. Legality is worked out once per position rather than once per move:
+// the pieces giving check give a mask of squares that block or capture, and each pinned piece may only
+// move along the line through its king and pinner. King moves and castling read Position's attack maps;
+// only en passant (which can uncover a rank attack by removing two pieces at once) is tested on its own.
+public final class MoveGenerator {
+    // No legal chess position has more than 218 moves
+    public static final int MAX_MOVES = 256;
+
+    private MoveGenerator() {
+    }
+
+    public static int generateLegal(Position pos, int[] moves) {
+        int us = pos.sideToMove;
+        int them = us ^ 1;
+        long own = pos.colors[us];
+        long enemy = pos.colors[them];
+        long attacked = pos.attacks(them);
+        int count = 0;
+
+        int kingSquare = pos.kingSquare[us];
+        if (kingSquare == Position.NO_SQUARE) {
+            // Positions without a king (set up by hand) have no check or pin constraints
+            return generate(pos, moves, count, Position.NO_SQUARE, 0, -1L);
+        }
+
+        // King moves: the attack map already sees through our king and covers defended enemy pieces
+        count = addMoves(moves, count, kingSquare, Attacks.king(kingSquare) & ~own & ~attacked, enemy);
+
+        long checkers = (attacked & (1L << kingSquare)) == 0 ? 0 : attackersTo(pos, kingSquare, them, pos.occupied);
+        if ((checkers & (checkers - 1)) != 0) {
+            // Double check: only the king can move
+            return count;
+        }
+
+        // In check, other pieces must capture the checker or step between it and the king
+        long checkMask = checkers == 0 ? -1L : checkers | Attacks.between(kingSquare, Bitboards.first(checkers));
+
+        count = generate(pos, moves, count, kingSquare, pinnedPieces(pos, kingSquare, us), checkMask);
+
+        if (checkers == 0) {
+            count = generateCastling(pos, moves, count, kingSquare);
+        }
+        return count;
+    }
+
+    // Non-king moves. A pinned piece's targets are limited to the line through its king.
+    private static int generate(Position pos, int[] moves, int count, int kingSquare, long pinned, long checkMask) {
+        int us = pos.sideToMove;
+        long[] pieces = pos.pieces;
+        long enemy = pos.colors[us ^ 1];
+        long targets = ~pos.colors[us] & checkMask;
+        long occupied = pos.occupied;
+
+        count = generatePawnMoves(pos, moves, count, kingSquare, pinned, checkMask);
+
+        for (long set = pieces[make(us, KNIGHT)] & ~pinned; set != 0; set &= set - 1) {
+            // A pinned knight can never stay on its pin line
+            int from = Bitboards.first(set);
+            count = addMoves(moves, count, from, Attacks.knight(from) & targets, enemy);
+        }
+        for (long set = pieces[make(us, BISHOP)] | pieces[make(us, QUEEN)]; set != 0; set &= set - 1) {
+            int from = Bitboards.first(set);
+            long allowed = pinLine(pinned, kingSquare, from) & targets;
+            count = addMoves(moves, count, from, Attacks.bishop(from, occupied) & allowed, enemy);
+        }
+        for (long set = pieces[make(us, ROOK)] | pieces[make(us, QUEEN)]; set != 0; set &= set - 1) {
+            int from = Bitboards.first(set);
+            long allowed = pinLine(pinned, kingSquare, from) & targets;
+            count = addMoves(moves, count, from, Attacks.rook(from, occupied) & allowed, enemy);
+        }
+        return count;
+    }
+
+    private static int generatePawnMoves(Position pos, int[] moves, int count, int kingSquare, long pinned, long checkMask) {
+        int us = pos.sideToMove;
+        int[] board = pos.board;
+        long enemy = pos.colors[us ^ 1];
+        int direction = us == WHITE ? 8 : -8;
+        int startRank = us == WHITE ? 1 : 6;
+        int promotionRank = us == WHITE ? 7 : 0;
+        // A square from a FEN only counts if the enemy pawn that just pushed two squares stands in front of it
+        int ep = pos.enPassantSquare;
+        if (ep != Position.NO_SQUARE && ((ep >> 3) != (us == WHITE ? 5 : 2) || board[ep ^ 8] != make(us ^ 1, PAWN))) {
+            ep = Position.NO_SQUARE;
+        }
+
+        for (long set = pos.pieces[make(us, PAWN)]; set != 0; set &= set - 1) {
+            int from = Bitboards.first(set);
+            long allowed = pinLine(pinned, kingSquare, from) & checkMask;
+            int one = from + direction;
+
+            // Pushes
+            if (board[one] == EMPTY) {
+                if ((allowed & (1L << one)) != 0) {
+                    if ((one >> 3) == promotionRank) {
+                        count = addPromotions(moves, count, from, one, Move.PROMOTION);
+                    } else {
+                        moves[count++] = Move.of(from, one, Move.QUIET);
+                    }
+                }
+                int two = one + direction;
+                if ((from >> 3) == startRank && board[two] == EMPTY && (allowed & (1L << two)) != 0) {
+                    moves[count++] = Move.of(from, two, Move.DOUBLE_PUSH);
+                }
+            }
+
+            // Captures
+            long attacks = Attacks.pawn(us, from);
+            for (long captures = attacks & enemy & allowed; captures != 0; captures &= captures - 1) {
+                int to = Bitboards.first(captures);
+                if ((to >> 3) == promotionRank) {
+                    count = addPromotions(moves, count, from, to, Move.PROMOTION_CAPTURE);
+                } else {
+                    moves[count++] = Move.of(from, to, Move.CAPTURE);
+                }
+            }
+
+            if (ep != Position.NO_SQUARE && (attacks & (1L << ep)) != 0 && isLegalEnPassant(pos, kingSquare, from, ep)) {
+                moves[count++] = Move.of(from, ep, Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private static int addPromotions(int[] moves, int count, int from, int to, int baseFlag) {
+        for (int piece = 3; piece >= 0; piece--) {
+            moves[count++] = Move.of(from, to, baseFlag | piece);
+        }
+        return count;
+    }
+
+    private static int generateCastling(Position pos, int[] moves, int count, int kingSquare) {
+        int us = pos.sideToMove;
+        int rights = pos.castlingRights;
+        int home = us == WHITE ? 4 : 60;
+        if (kingSquare != home || rights == 0) {
+            return count;
+        }
+
+        int kingside = us == WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = us == WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        int rook = make(us, ROOK);
+        long attacked = pos.attacks(us ^ 1);
+
+        // Squares between king and rook must be empty, and the king may not pass through or land on an attacked square
+        if ((rights & kingside) != 0 && pos.board[home + 3] == rook
+                && (pos.occupied & (0x60L << (home & 56))) == 0
+                && (attacked & (0x60L << (home & 56))) == 0) {
+            moves[count++] = Move.of(home, home + 2, Move.KING_CASTLE);
+        }
+        if ((rights & queenside) != 0 && pos.board[home - 4] == rook
+                && (pos.occupied & (0x0EL << (home & 56))) == 0
+                && (attacked & (0x0CL << (home & 56))) == 0) {
+            moves[count++] = Move.of(home, home - 2, Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+
+    private static int addMoves(int[] moves, int count, int from, long targets, long enemy) {
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Bitboards.first(targets);
+            moves[count++] = Move.of(from, to, (enemy & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+        }
+        return count;
+    }
+
+    private static long pinLine(long pinned, int kingSquare, int from) {
+        return (pinned & (1L << from)) != 0 ? Attacks.line(kingSquare, from) : -1L;
+    }
+
+    // Own pieces that are the only piece between the king and an enemy slider aimed at it
+    private static long pinnedPieces(Position pos, int kingSquare, int us) {
+        long[] pieces = pos.pieces;
+        int base = (us ^ 1) * 6;
+        long queens = pieces[base + QUEEN];
+        long snipers = (Attacks.rook(kingSquare, 0) & (pieces[base + ROOK] | queens))
+                | (Attacks.bishop(kingSquare, 0) & (pieces[base + BISHOP] | queens));
+
+        long pinned = 0;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = Attacks.between(kingSquare, Bitboards.first(snipers)) & pos.occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0) {
+                pinned |= blockers & pos.colors[us];
+            }
+        }
+        return pinned;
+    }
+
+    private static long attackersTo(Position pos, int square, int byColor, long occupied) {
+        long[] pieces = pos.pieces;
+        int base = byColor * 6;
+        long queens = pieces[base + QUEEN];
+        return (Attacks.pawn(byColor ^ 1, square) & pieces[base + PAWN])
+                | (Attacks.knight(square) & pieces[base + KNIGHT])
+                | (Attacks.bishop(square, occupied) & (pieces[base + BISHOP] | queens))
+                | (Attacks.rook(square, occupied) & (pieces[base + ROOK] | queens));
+    }
+
+    // En passant removes two pieces from the capturing pawn's rank, which the pin mask cannot see,
+    // so it is checked against the occupancy after the capture
+    private static boolean isLegalEnPassant(Position pos, int kingSquare, int from, int to) {
+        if (kingSquare == Position.NO_SQUARE) {
+            return true;
+        }
+        long captured = 1L << (to ^ 8);
+        long occupied = (pos.occupied ^ (1L << from) ^ captured) | (1L << to);
+        return !Rules.isAttacked(pos, kingSquare, pos.sideToMove ^ 1, occupied, ~captured);
+    }
+}
@@ -0,0 +1,27 @@
+package chess.core;
+
+// Reusable move buffers, one per search ply. A buffer is allocated the first time its ply is reached
+// and kept afterwards, so a search that runs on the same stack again allocates nothing. A stack
+// belongs to one thread at a time.
+public final class MoveStack {
+    private int[][] plies;
+
+    public MoveStack() {
+        this(16);
+    }
+
+    public MoveStack(int depth) {
+        plies = new int[Math.max(1, depth)][];
+    }
+
+    public int[] ply(int ply) {
+        if (ply >= plies.length) {
+            plies = java.util.Arrays.copyOf(plies, Math.max(ply + 1, plies.length * 2));
+        }
+        int[] buffer = plies[ply];
+        if (buffer == null) {
+            buffer = plies[ply] = new int[MoveGenerator.MAX_MOVES];
+        }
+        return buffer;
+    }
+}
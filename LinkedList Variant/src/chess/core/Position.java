@@ -0,0 +1,412 @@
+package chess.core;
+
+import static chess.core.Pieces.*;
+
+// Headless board state: piece placement, side to move, castling rights, en passant square and clocks.
+// Squares are numbered 0..63 from a1 to h8 (a1 = 0, h1 = 7, a8 = 56); the UI's row 0 is rank 8.
+// Placement is kept twice: a mailbox for "what is on this square" and one bitboard per piece code
+// (plus per-color and total occupancy) for attack queries. Both are only changed through put/remove,
+// which also track each side's king square. The squares each side attacks are kept as one bitboard per
+// side and saved on the undo stack, so "is this square attacked" is a single bit test. After a move only
+// the mover's map is rebuilt (the next move generation needs it); the other side's is rebuilt on demand.
+public class Position {
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int NO_SQUARE = -1;
+
+    // Size of a snapshot written by writeSnapshot
+    public static final int SNAPSHOT_LONGS = 5;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    // Castling rights that survive a move touching the given square (king and rook home squares)
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        java.util.Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[0] = 15 & ~WHITE_QUEENSIDE;
+        CASTLING_MASK[4] = 15 & ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[7] = 15 & ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] = 15 & ~BLACK_QUEENSIDE;
+        CASTLING_MASK[60] = 15 & ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[63] = 15 & ~BLACK_KINGSIDE;
+    }
+
+    final int[] board = new int[64];
+    final long[] pieces = new long[12];
+    final long[] colors = new long[2];
+    long occupied;
+    long key;
+    final int[] kingSquare = {NO_SQUARE, NO_SQUARE};
+    // Squares attacked by each side, computed as if the other side's king were not on the board so a
+    // king can never step back along the ray of a slider that checks it
+    private final long[] attacked = new long[2];
+    private int staleAttacks;
+    int sideToMove = WHITE;
+    int castlingRights;
+    int enPassantSquare = NO_SQUARE;
+    int halfmoveClock;
+    int fullmoveNumber = 1;
+
+    private long[] undoStack = new long[256];
+    private long[] attackStack = new long[512];
+    private int undoCount;
+
+    public Position() {
+        java.util.Arrays.fill(board, EMPTY);
+    }
+
+    public Position(String fen) {
+        this();
+        setFen(fen);
+    }
+
+    // Independent copy of the current state, for handing a position to another thread.
+    // The undo stack is not copied: the copy starts with nothing to take back.
+    public Position(Position other) {
+        copyFrom(other);
+    }
+
+    public void copyFrom(Position other) {
+        System.arraycopy(other.board, 0, board, 0, 64);
+        System.arraycopy(other.pieces, 0, pieces, 0, 12);
+        colors[WHITE] = other.colors[WHITE];
+        colors[BLACK] = other.colors[BLACK];
+        occupied = other.occupied;
+        key = other.key;
+        kingSquare[WHITE] = other.kingSquare[WHITE];
+        kingSquare[BLACK] = other.kingSquare[BLACK];
+        attacked[WHITE] = other.attacked[WHITE];
+        attacked[BLACK] = other.attacked[BLACK];
+        staleAttacks = other.staleAttacks;
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        undoCount = 0;
+    }
+
+    // The rights left after a move from one square to another; shared with the square-array backends
+    public static int castlingRightsAfter(int rights, int from, int to) {
+        return rights & CASTLING_MASK[from] & CASTLING_MASK[to];
+    }
+
+    public static int square(int row, int col) {
+        return (7 - row) * 8 + col;
+    }
+
+    public static int row(int square) {
+        return 7 - (square >> 3);
+    }
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    public int pieceAt(int square) {
+        return board[square];
+    }
+
+    public int pieceAt(int row, int col) {
+        return board[square(row, col)];
+    }
+
+    public long pieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long pieces(int color, int kind) {
+        return pieces[make(color, kind)];
+    }
+
+    public long colorOccupancy(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    // Zobrist key of pieces, side to move, castling rights and en passant file (see Zobrist)
+    public long key() {
+        return key;
+    }
+
+    public int kingSquare(int color) {
+        return kingSquare[color];
+    }
+
+    // Squares the given side attacks (see the note on the attacked field)
+    public long attacks(int color) {
+        if ((staleAttacks & (1 << color)) != 0) {
+            attacked[color] = attacksBy(color);
+            staleAttacks &= ~(1 << color);
+        }
+        return attacked[color];
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public boolean isWhiteToMove() {
+        return sideToMove == WHITE;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    // Throws FenFormatException (with the index of the bad character) and leaves the position unchanged
+    public void setFen(CharSequence fen) {
+        FenParser.parse(fen, this);
+    }
+
+    // Called by FenParser once a whole record has been read
+    void load(int[] placement, int side, int rights, int ep, int halfmove, int fullmove) {
+        clear();
+        for (int sq = 0; sq < 64; sq++) {
+            if (placement[sq] != EMPTY) {
+                put(sq, placement[sq]);
+            }
+        }
+        loadState(side, rights, ep, halfmove, fullmove);
+    }
+
+    // Packs the position into SNAPSHOT_LONGS longs at the offset: four hold the placement, 4 bits per
+    // square (piece code + 1), the last one side to move | castling << 1 | en passant + 1 << 5 |
+    // halfmove clock << 12 | fullmove number << 28. Smaller than a FEN and restored without parsing.
+    public void writeSnapshot(long[] to, int offset) {
+        java.util.Arrays.fill(to, offset, offset + 4, 0L);
+        for (long occ = occupied; occ != 0; occ &= occ - 1) {
+            int sq = Long.numberOfTrailingZeros(occ);
+            to[offset + (sq >> 4)] |= (long) (board[sq] + 1) << ((sq & 15) << 2);
+        }
+        to[offset + 4] = sideToMove
+                | castlingRights << 1
+                | (enPassantSquare + 1) << 5
+                | (long) halfmoveClock << 12
+                | (long) fullmoveNumber << 28;
+    }
+
+    public void readSnapshot(long[] from, int offset) {
+        clear();
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = (int) (from[offset + (sq >> 4)] >>> ((sq & 15) << 2) & 15) - 1;
+            if (piece != EMPTY) {
+                put(sq, piece);
+            }
+        }
+        long state = from[offset + 4];
+        loadState((int) state & 1, (int) (state >>> 1) & 15, (int) (state >>> 5 & 127) - 1,
+                (int) (state >>> 12) & 0xFFFF, (int) (state >>> 28));
+    }
+
+    private void loadState(int side, int rights, int ep, int halfmove, int fullmove) {
+        sideToMove = side;
+        castlingRights = rights;
+        enPassantSquare = ep;
+        halfmoveClock = halfmove;
+        fullmoveNumber = fullmove;
+        undoCount = 0;
+        staleAttacks = 3;
+        key ^= (side == BLACK ? Zobrist.blackToMove() : 0L) ^ Zobrist.castling(rights) ^ Zobrist.enPassant(ep);
+    }
+
+    // Allocates the returned String; FenWriter can write the same text into a reusable buffer
+    public String toFen() {
+        return FenWriter.toString(this);
+    }
+
+    // Plays a legal move from MoveGenerator. The state needed to take it back is pushed on an undo stack,
+    // so unmakeMove restores the position exactly without re-parsing anything.
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int piece = board[from];
+
+        int captured = EMPTY;
+        if (flags == Move.EN_PASSANT) {
+            // The captured pawn sits behind the target square; a move made up by hand may find it empty
+            if (board[to ^ 8] != EMPTY) {
+                captured = remove(to ^ 8);
+            }
+        } else if (board[to] != EMPTY) {
+            captured = remove(to);
+        }
+        pushUndo(move, captured);
+
+        remove(from);
+        put(to, Move.isPromotion(move) ? make(sideToMove, Move.promotionKind(move)) : piece);
+
+        if (flags == Move.KING_CASTLE) {
+            put(from + 1, remove(from + 3));
+        } else if (flags == Move.QUEEN_CASTLE) {
+            put(from - 1, remove(from - 4));
+        }
+
+        int ep = flags == Move.DOUBLE_PUSH ? (from + to) >> 1 : NO_SQUARE;
+        int rights = castlingRightsAfter(castlingRights, from, to);
+        key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.enPassant(ep)
+                ^ Zobrist.castling(castlingRights) ^ Zobrist.castling(rights) ^ Zobrist.blackToMove();
+        enPassantSquare = ep;
+        castlingRights = rights;
+        halfmoveClock = kind(piece) == PAWN || captured != EMPTY ? 0 : halfmoveClock + 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        attacked[sideToMove] = attacksBy(sideToMove);
+        staleAttacks |= 1 << (sideToMove ^ 1);
+        sideToMove ^= 1;
+    }
+
+    public void unmakeMove() {
+        long undo = undoStack[--undoCount];
+        attacked[WHITE] = attackStack[2 * undoCount];
+        attacked[BLACK] = attackStack[2 * undoCount + 1];
+        staleAttacks = (int) (undo >>> 48) & 3;
+        int move = (int) (undo & 0xFFFF);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+
+        int piece = remove(to);
+        put(from, Move.isPromotion(move) ? make(sideToMove, PAWN) : piece);
+
+        int captured = (int) (undo >>> 16 & 15) - 1;
+        if (captured != EMPTY) {
+            put(flags == Move.EN_PASSANT ? to ^ 8 : to, captured);
+        }
+
+        if (flags == Move.KING_CASTLE) {
+            put(from + 3, remove(from + 1));
+        } else if (flags == Move.QUEEN_CASTLE) {
+            put(from - 4, remove(from - 1));
+        }
+
+        int rights = (int) (undo >>> 20 & 15);
+        int ep = (int) (undo >>> 24 & 127) - 1;
+        key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.enPassant(ep)
+                ^ Zobrist.castling(castlingRights) ^ Zobrist.castling(rights) ^ Zobrist.blackToMove();
+        castlingRights = rights;
+        enPassantSquare = ep;
+        halfmoveClock = (int) (undo >>> 32) & 0xFFFF;
+    }
+
+    // Number of moves that can currently be taken back
+    public int undoDepth() {
+        return undoCount;
+    }
+
+    // Forgets the moves played so far; they can no longer be taken back. For positions that are only
+    // ever played forward, such as a history being replayed, so the undo stack does not keep growing.
+    public void clearUndo() {
+        undoCount = 0;
+    }
+
+    // Undo record layout: move (16 bits) | captured piece + 1 (4) | castling rights (4) |
+    // en passant square + 1 (7) | halfmove clock (upper 32 bits)
+    private void pushUndo(int move, int captured) {
+        if (undoCount == undoStack.length) {
+            undoStack = java.util.Arrays.copyOf(undoStack, undoStack.length * 2);
+            attackStack = java.util.Arrays.copyOf(attackStack, attackStack.length * 2);
+        }
+        attackStack[2 * undoCount] = attacked[WHITE];
+        attackStack[2 * undoCount + 1] = attacked[BLACK];
+        undoStack[undoCount++] = move
+                | (long) (captured + 1) << 16
+                | (long) castlingRights << 20
+                | (long) (enPassantSquare + 1) << 24
+                | (long) halfmoveClock << 32
+                | (long) staleAttacks << 48;
+    }
+
+    void put(int square, int piece) {
+        long bit = 1L << square;
+        board[square] = piece;
+        pieces[piece] |= bit;
+        colors[color(piece)] |= bit;
+        occupied |= bit;
+        key ^= Zobrist.piece(piece, square);
+        if (kind(piece) == KING) {
+            kingSquare[color(piece)] = square;
+        }
+    }
+
+    int remove(int square) {
+        int piece = board[square];
+        long bit = 1L << square;
+        board[square] = EMPTY;
+        pieces[piece] &= ~bit;
+        colors[color(piece)] &= ~bit;
+        occupied &= ~bit;
+        key ^= Zobrist.piece(piece, square);
+        if (kind(piece) == KING) {
+            kingSquare[color(piece)] = NO_SQUARE;
+        }
+        return piece;
+    }
+
+    private void clear() {
+        java.util.Arrays.fill(board, EMPTY);
+        java.util.Arrays.fill(pieces, 0L);
+        colors[WHITE] = 0;
+        colors[BLACK] = 0;
+        occupied = 0;
+        key = 0;
+        kingSquare[WHITE] = NO_SQUARE;
+        kingSquare[BLACK] = NO_SQUARE;
+    }
+
+    private long attacksBy(int color) {
+        int base = color * 6;
+        // The enemy king is transparent to sliders
+        long occ = occupied & ~pieces[make(color ^ 1, KING)];
+
+        long pawns = pieces[base + PAWN];
+        long set = color == WHITE
+                ? (pawns << 7 & ~Bitboards.FILE_H) | (pawns << 9 & ~Bitboards.FILE_A)
+                : (pawns >>> 9 & ~Bitboards.FILE_H) | (pawns >>> 7 & ~Bitboards.FILE_A);
+
+        long knights = pieces[base + KNIGHT];
+        if (knights != 0) {
+            long notA = ~Bitboards.FILE_A, notAB = notA & ~(Bitboards.FILE_A << 1);
+            long notH = ~Bitboards.FILE_H, notGH = notH & ~(Bitboards.FILE_H >>> 1);
+            set |= (knights << 17 & notA) | (knights << 15 & notH) | (knights << 10 & notAB) | (knights << 6 & notGH)
+                    | (knights >>> 15 & notA) | (knights >>> 17 & notH) | (knights >>> 6 & notAB) | (knights >>> 10 & notGH);
+        }
+        long queens = pieces[base + QUEEN];
+        for (long diagonal = pieces[base + BISHOP] | queens; diagonal != 0; diagonal &= diagonal - 1) {
+            set |= Attacks.bishop(Bitboards.first(diagonal), occ);
+        }
+        for (long straight = pieces[base + ROOK] | queens; straight != 0; straight &= straight - 1) {
+            set |= Attacks.rook(Bitboards.first(straight), occ);
+        }
+        if (kingSquare[color] != NO_SQUARE) {
+            set |= Attacks.king(kingSquare[color]);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,38 @@
+package chess.core;
+
+import static chess.core.Pieces.*;
+
+// Attack queries on a headless Position. Nothing here touches Swing or allocates: square queries are a
+// bit test on the position's attack maps, and isAttacked is a handful of bitboard lookups (see Attacks).
+// Move legality itself lives in MoveGenerator.
+public final class Rules {
+    private Rules() {
+    }
+
+    public static boolean isKingInCheck(Position pos, int color) {
+        int king = pos.kingSquare[color];
+        if (king == Position.NO_SQUARE) return false; // shouldn't happen
+        return isSquareUnderAttack(pos, king, color ^ 1);
+    }
+
+    // Sliders see through the defending king, so a square behind the king on a checking ray counts as
+    // attacked. That is what king moves and castling need.
+    public static boolean isSquareUnderAttack(Position pos, int square, int byColor) {
+        return (pos.attacks(byColor) & (1L << square)) != 0;
+    }
+
+    // Attackers are found by looking outward from the target square: a knight on any square a knight
+    // could reach from here attacks it, and likewise for every other piece kind. Pieces outside
+    // 'remaining' are treated as captured.
+    static boolean isAttacked(Position pos, int square, int byColor, long occupied, long remaining) {
+        long[] pieces = pos.pieces;
+        int base = byColor * 6;
+        long queens = pieces[base + QUEEN];
+
+        return (Attacks.pawn(byColor ^ 1, square) & pieces[base + PAWN] & remaining) != 0
+                || (Attacks.knight(square) & pieces[base + KNIGHT] & remaining) != 0
+                || (Attacks.king(square) & pieces[base + KING]) != 0
+                || (Attacks.bishop(square, occupied) & (pieces[base + BISHOP] | queens) & remaining) != 0
+                || (Attacks.rook(square, occupied) & (pieces[base + ROOK] | queens) & remaining) != 0;
+    }
+}
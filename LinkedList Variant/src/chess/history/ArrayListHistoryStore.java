@@ -0,0 +1,42 @@
+package chess.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+// A boxed Short per entry in an ArrayList, as the ArrayList variant kept its history
+public final class ArrayListHistoryStore implements HistoryStore {
+    private final List<Short> moves = new ArrayList<>();
+
+    @Override
+    public String name() {
+        return "arraylist";
+    }
+
+    @Override
+    public void append(int move) {
+        moves.add((short) move);
+    }
+
+    @Override
+    public void truncateAfter(int index) {
+        if (index < moves.size() - 1) {
+            moves.subList(index + 1, moves.size()).clear();
+        }
+    }
+
+    @Override
+    public int get(int index) {
+        return moves.get(index) & 0xFFFF;
+    }
+
+    @Override
+    public int size() {
+        return moves.size();
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator(int fromIndex) {
+        return ListIterators.of(moves.listIterator(fromIndex));
+    }
+}
@@ -0,0 +1,75 @@
+package chess.history;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// Fixed 4096-entry short[] chunks: 2 bytes per entry like ArrayHistoryStore, but appending never copies
+// the entries already stored, only the small table of chunk references. Chunks past a truncation are
+// kept for the entries that replace them.
+public final class ChunkedHistoryStore implements HistoryStore {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private short[][] chunks = new short[4][];
+    private int size;
+
+    @Override
+    public String name() {
+        return "chunked";
+    }
+
+    @Override
+    public void append(int move) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new short[CHUNK_SIZE];
+        }
+        chunks[chunk][size & CHUNK_MASK] = (short) move;
+        size++;
+    }
+
+    @Override
+    public void truncateAfter(int index) {
+        size = Math.min(size, Math.max(-1, index) + 1);
+    }
+
+    @Override
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("entry " + index + " of " + size);
+        }
+        return chunks[index >>> CHUNK_BITS][index & CHUNK_MASK] & 0xFFFF;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator(int fromIndex) {
+        return new PrimitiveIterator.OfInt() {
+            private int next = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                int move = chunks[next >>> CHUNK_BITS][next & CHUNK_MASK] & 0xFFFF;
+                next++;
+                return move;
+            }
+        };
+    }
+}
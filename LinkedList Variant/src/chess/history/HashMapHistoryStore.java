@@ -0,0 +1,64 @@
+package chess.history;
+
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// Entries keyed by their boxed index, as the HashMap variant kept its history; the keys are always
+// 0..size-1, so truncating removes them one by one
+public final class HashMapHistoryStore implements HistoryStore {
+    private final HashMap<Integer, Short> moves = new HashMap<>();
+    private int size;
+
+    @Override
+    public String name() {
+        return "hashmap";
+    }
+
+    @Override
+    public void append(int move) {
+        moves.put(size++, (short) move);
+    }
+
+    @Override
+    public void truncateAfter(int index) {
+        for (int i = Math.max(-1, index) + 1; i < size; i++) {
+            moves.remove(i);
+        }
+        size = Math.min(size, Math.max(-1, index) + 1);
+    }
+
+    @Override
+    public int get(int index) {
+        Short move = moves.get(index);
+        if (move == null) {
+            throw new IndexOutOfBoundsException("entry " + index + " of " + size);
+        }
+        return move & 0xFFFF;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator(int fromIndex) {
+        return new PrimitiveIterator.OfInt() {
+            private int next = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package chess.history;
+
+// Told how far a long history operation has got, on the thread doing it, and asked whether to go on.
+// An operation that is told to stop throws java.util.concurrent.CancellationException, or for a file
+// still loading keeps the entries found so far.
+@FunctionalInterface
+public interface HistoryProgress {
+    HistoryProgress NONE = (done, total) -> true;
+
+    // done of total units (entries or bytes); returns false to stop
+    boolean update(long done, long total);
+}
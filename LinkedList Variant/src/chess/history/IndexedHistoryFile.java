@@ -0,0 +1,93 @@
+package chess.history;
+
+import chess.core.FenParser;
+import chess.core.FenWriter;
+import chess.core.Position;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reader for the indexed format (see HistoryFile): the whole file is mapped and entry k is parsed
+// straight from the bytes between the offsets at 16 + 8k and 16 + 8(k + 1)
+final class IndexedHistoryFile extends HistoryFile {
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int size;
+    private final byte[] record = new byte[FenWriter.MAX_LENGTH];
+    private final FenParser parser = new FenParser();
+
+    private IndexedHistoryFile(FileChannel channel, MappedByteBuffer data, int size) {
+        this.channel = channel;
+        this.data = data;
+        this.size = size;
+    }
+
+    static IndexedHistoryFile map(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("history files over 2 GB are not supported");
+            }
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (length < HEADER_SIZE || data.get(i) != MAGIC[i]) {
+                    throw new IOException("not an indexed history file");
+                }
+            }
+            long count = data.getLong(MAGIC.length);
+            if (count < 0 || HEADER_SIZE + 8 * (count + 1) > length
+                    || data.getLong(HEADER_SIZE + 8 * (int) count) != length) {
+                throw new IOException("history file index is damaged");
+            }
+            return new IndexedHistoryFile(channel, data, (int) count);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Throws IllegalArgumentException if the record is not a valid FEN
+    @Override
+    public void positionAt(int index, Position target) {
+        int length = readRecord(index);
+        if (!parser.tryParse(record, 0, length, target)) {
+            throw new IllegalArgumentException("entry " + index + ": " + parser.exception().getMessage());
+        }
+    }
+
+    @Override
+    public String fenAt(int index) {
+        int length = readRecord(index);
+        return new String(record, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Copies entry index, without its line break, into record and returns its length
+    private int readRecord(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("entry " + index + " of " + size);
+        }
+        long start = data.getLong(HEADER_SIZE + 8 * index);
+        long end = data.getLong(HEADER_SIZE + 8 * (index + 1)) - 1;
+        if (start < HEADER_SIZE + 8L * (size + 1) || end < start || end - start > record.length
+                || end >= data.limit() || data.get((int) end) != '\n') {
+            throw new IllegalArgumentException("entry " + index + ": history file index is damaged");
+        }
+        data.get((int) start, record, 0, (int) (end - start));
+        return (int) (end - start);
+    }
+}
@@ -0,0 +1,63 @@
+package chess.core;
+
+// En passant squares that no double push left behind: FenParser turns such a record down, and a position
+// that gets one anyway (read from a snapshot) must give the same root moves, and the same count below
+// each, as with "-". A genuine square must still give the capture.
+//   java -cp out chess.core.EnPassantTest
+// Exits with 1 on the first mismatch.
+public class EnPassantTest {
+    public static void main(String[] args) {
+        // Black pawn on e4 behind an e3 square, but white is to move, so no black pawn just pushed
+        checkIgnored("4k3/8/8/8/4p3/8/3P4/4K3 w - e3 0 1", 3, "d2e3");
+        // The pawn in front of the square is white's own
+        checkIgnored("4k3/8/8/8/4P3/8/3P4/4K3 w - e3 0 1", 3, "d2e3");
+        // Nothing on d5 to take
+        checkIgnored("4k3/8/8/4P3/8/8/8/4K3 w - d6 0 1", 2, "e5d6");
+
+        Position real = new Position("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        check(rootMoves(real, 1).contains("e5d6: 1"), "e5d6 missing after d7d5");
+        System.out.println("ok");
+    }
+
+    private static void checkIgnored(String fen, int depth, String capture) {
+        check(!new FenParser().tryParse(fen, new Position()), "parsed " + fen);
+
+        String square = fen.split(" ")[3];
+        Position position = new Position(fen.replace(" " + square + " ", " - "));
+        String without = rootMoves(position, depth);
+        long[] snapshot = new long[Position.SNAPSHOT_LONGS];
+        position.writeSnapshot(snapshot, 0);
+        int ep = (square.charAt(1) - '1') * 8 + square.charAt(0) - 'a';
+        snapshot[4] |= (long) (ep + 1) << 5;
+        position.readSnapshot(snapshot, 0);
+        check(position.enPassantSquare() == ep, "snapshot lost " + square);
+
+        String moves = rootMoves(position, depth);
+        check(!moves.contains(capture), capture + " generated in " + fen);
+        check(moves.equals(without), "divide " + depth + " of " + fen + ":\n" + moves + "instead of\n" + without);
+    }
+
+    // One "move: nodes" line per root move, sorted
+    private static String rootMoves(Position position, int depth) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        long[] counts = new long[MoveGenerator.MAX_MOVES];
+        int count = new Perft(position, depth).divide(depth, moves, counts);
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = Move.toUci(moves[i]) + ": " + counts[i];
+        }
+        java.util.Arrays.sort(lines);
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            System.out.println("FAIL: " + what);
+            System.exit(1);
+        }
+    }
+}
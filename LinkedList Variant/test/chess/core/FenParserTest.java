@@ -0,0 +1,40 @@
+package chess.core;
+
+// Records FenParser must turn down although their syntax is fine, and close ones it must still read.
+// FenValidator reports whatever the parser turns down, so the two agree on these.
+//   java -cp out chess.core.FenParserTest
+// Exits with 1 on the first mismatch.
+public class FenParserTest {
+    public static void main(String[] args) {
+        rejected("P3k3/8/8/8/8/8/8/4K3 w - - 0 1", "pawn on the first or last rank");
+        rejected("4k3/8/8/8/8/8/8/p3K3 b - - 0 1", "pawn on the first or last rank");
+        rejected("4k3/8/8/8/4p3/8/3P4/4K3 w - e3 0 1", "en passant square must be on rank 6");
+        rejected("4k3/8/8/4P3/8/8/8/4K3 w - d6 0 1", "en passant square does not follow a double pawn push");
+        rejected("4k3/8/3p4/3p4/8/8/8/4K3 w - d6 0 1", "en passant square does not follow a double pawn push");
+
+        accepted("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1");
+        accepted("4k3/8/8/8/3Pp3/8/8/4K3 b - d3 0 1");
+        accepted("4k3/P7/8/8/8/8/p7/4K3 w - - 0 1");
+        System.out.println("ok");
+    }
+
+    private static void rejected(String fen, String reason) {
+        FenParser parser = new FenParser();
+        check(!parser.tryParse(fen, new Position()), "parsed " + fen);
+        check(parser.error().startsWith(reason), fen + ": " + parser.error());
+    }
+
+    private static void accepted(String fen) {
+        FenParser parser = new FenParser();
+        Position position = new Position();
+        check(parser.tryParse(fen, position), fen + ": " + parser.error());
+        check(position.toFen().equals(fen), "read back as " + position.toFen());
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            System.out.println("FAIL: " + what);
+            System.exit(1);
+        }
+    }
+}
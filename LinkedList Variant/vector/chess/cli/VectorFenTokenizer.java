@@ -0,0 +1,35 @@
+package chess.cli;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Compares a whole lane of bytes (32 with AVX2, 64 with AVX-512) against '\n' at once and
+// walks the set bits of the resulting mask. The tail that does not fill a lane is scanned byte by
+// byte. Loaded by FenTokenizer.vector() only, so the main source tree never needs the module.
+final class VectorFenTokenizer implements FenTokenizer {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    public String name() {
+        return "vector (" + SPECIES.length() + " byte lanes)";
+    }
+
+    @Override
+    public int lineEnds(byte[] data, int from, int to, int[] ends) {
+        int count = 0;
+        int i = from;
+        // Whole lanes only while a full lane of offsets still fits; the rest goes through the scalar tail
+        for (int bound = to - SPECIES.length(), room = ends.length - SPECIES.length();
+             i <= bound && count <= room; i += SPECIES.length()) {
+            for (long bits = ByteVector.fromArray(SPECIES, data, i).eq((byte) '\n').toLong(); bits != 0; bits &= bits - 1) {
+                ends[count++] = i + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        for (; i < to && count < ends.length; i++) {
+            if (data[i] == '\n') {
+                ends[count++] = i;
+            }
+        }
+        return count;
+    }
+}